@@ -0,0 +1,556 @@
+package in.ling.restapi.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import in.ling.restapi.RestapiApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Self-contained load test: starts the application in-process on an in-memory H2 database,
+ * seeds harness.profiles profiles with harness.expenses-per-profile expenses each through
+ * JDBC batches, and drives a weighted mix of POST /login and /expenses list and CRUD calls
+ * from harness.clients closed-loop clients.
+ * <p>
+ * Seeding bypasses ProfileServiceImpl.createProfile: every profile gets the same password,
+ * hashed once with the application's PasswordEncoder, and the expense rollups are written
+ * alongside the expenses. Each client logs in as one of the seeded profiles and only updates
+ * and deletes expenses no other client touches, so every non-2xx response is a real error.
+ * <p>
+ * Throughput, p50/p95/p99 and error rate per endpoint are written as JSON to harness.result
+ * and compared with the report at harness.baseline: an endpoint regresses when its throughput
+ * drops or its p95/p99 grows by more than harness.tolerance, or its error rate grows by more
+ * than harness.error-tolerance. Run it with
+ * <pre>
+ * mvn -Pbenchmark compile exec:exec@load-harness [-Dharness.clients=500 -Dharness.mix=list:80,get:20]
+ * mvn -Pbenchmark compile exec:exec@load-harness -Dharness.update-baseline=true
+ * mvn -Pbenchmark compile exec:exec@load-harness -Dharness.fail-on-regression=true
+ * </pre>
+ * Settings are read from the harness.* system properties, see the benchmark profile in pom.xml.
+ * @author Ling
+ */
+public class ExpenseLoadHarness {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String PASSWORD = "harness-password";
+
+    private static final int SEED_BATCH_SIZE = 5000;
+
+    private static final int CATEGORIES = 10;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final int profiles = Integer.getInteger("harness.profiles", 1000);
+
+    private final int expensesPerProfile = Integer.getInteger("harness.expenses-per-profile", 100);
+
+    private final int clients = Integer.getInteger("harness.clients", 200);
+
+    private final String mix = System.getProperty("harness.mix", "list:40,get:30,create:10,update:10,delete:5,login:5");
+
+    private final Duration warmup = Duration.parse(System.getProperty("harness.warmup", "PT15S"));
+
+    private final Duration duration = Duration.parse(System.getProperty("harness.duration", "PT60S"));
+
+    private final String label = System.getProperty("harness.label", "run");
+
+    private final File result = new File(System.getProperty("harness.result", "target/harness-" + label + ".json"));
+
+    private final File baseline = new File(System.getProperty("harness.baseline", "src/jmh/resources/harness-baseline.json"));
+
+    private final double tolerance = Double.parseDouble(System.getProperty("harness.tolerance", "0.25"));
+
+    private final double errorTolerance = Double.parseDouble(System.getProperty("harness.error-tolerance", "0.01"));
+
+    private final boolean updateBaseline = Boolean.getBoolean("harness.update-baseline");
+
+    private final boolean failOnRegression = Boolean.getBoolean("harness.fail-on-regression");
+
+    private final Map<Operation, Integer> weights = parseMix(mix);
+
+    private final int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+
+    private String baseUrl;
+
+    private volatile long measureFrom;
+
+    private volatile long measureUntil;
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new ExpenseLoadHarness().run());
+    }
+
+    private int run() throws Exception {
+        try (ConfigurableApplicationContext context = start()) {
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1";
+
+            List<Client> running = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                running.add(new Client(i % profiles));
+            }
+            long seedStart = System.nanoTime();
+            seed(context.getBean(DataSource.class), context.getBean(PasswordEncoder.class).encode(PASSWORD), running);
+            System.out.printf("Seeded %d profiles with %d expenses each in %d ms%n",
+                    profiles, expensesPerProfile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+            logIn(running);
+            System.out.printf("Running %d clients against %s with %s: %s warmup, %s measurement%n", clients, baseUrl, weights, warmup, duration);
+            long start = System.nanoTime();
+            measureFrom = start + warmup.toNanos();
+            measureUntil = measureFrom + duration.toNanos();
+            CountDownLatch finished = new CountDownLatch(clients);
+            for (Client client : running) {
+                client.finished = finished;
+                client.next();
+            }
+            if (!finished.await(warmup.plus(duration).plusMinutes(2).toMillis(), TimeUnit.MILLISECONDS)) {
+                System.out.println("Some clients did not finish in time, their last request is not counted");
+            }
+
+            ObjectNode report = report(running);
+            List<String> regressions = compareWithBaseline(report);
+            write(report, result);
+            System.out.println("Report written to " + result);
+            if (updateBaseline) {
+                write(report, baseline);
+                System.out.println("Baseline written to " + baseline);
+            }
+            regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+            return failOnRegression && !regressions.isEmpty() ? 1 : 0;
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        // command line arguments, so that they win over application.properties
+        return SpringApplication.run(RestapiApplication.class,
+                "--spring.datasource.url=jdbc:h2:mem:harness;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--server.port=0",
+                "--management.server.port=-1",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn");
+    }
+
+    private void seed(DataSource dataSource, String passwordHash, List<Client> running) throws SQLException {
+        Map<Integer, List<Client>> clientsByProfile = new HashMap<>();
+        for (Client client : running) {
+            clientsByProfile.computeIfAbsent(client.profile, profile -> new ArrayList<>()).add(client);
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("insert into tbl_profile " +
+                    "(profile_id, email, name, password, created_at, updated_at, expenses_version) values (?, ?, ?, ?, ?, ?, 0)")) {
+                for (int profile = 0; profile < profiles; profile++) {
+                    insert.setString(1, UUID.randomUUID().toString());
+                    insert.setString(2, email(profile));
+                    insert.setString(3, "Harness " + profile);
+                    insert.setString(4, passwordHash);
+                    insert.setTimestamp(5, now);
+                    insert.setTimestamp(6, now);
+                    insert.addBatch();
+                    if ((profile + 1) % SEED_BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            Map<String, Long> ownerIds = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("select id, email from tbl_profile")) {
+                while (rs.next()) {
+                    ownerIds.put(rs.getString(2), rs.getLong(1));
+                }
+            }
+
+            long id = 0;
+            int pending = 0;
+            try (PreparedStatement expenses = connection.prepareStatement("insert into tbl_expenses " +
+                    "(id, expense_id, name, note, category, date, amount, created_at, updated_at, version, owner_id) " +
+                    "values (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)");
+                 PreparedStatement rollups = connection.prepareStatement("insert into tbl_expense_rollups " +
+                         "(owner_id, rollup_month, category, total, expense_count) values (?, ?, ?, ?, ?)")) {
+                LocalDate today = LocalDate.now();
+                for (int profile = 0; profile < profiles; profile++) {
+                    long ownerId = ownerIds.get(email(profile));
+                    List<Client> owners = clientsByProfile.getOrDefault(profile, List.of());
+                    Map<List<Object>, long[]> totals = new HashMap<>();
+                    for (int i = 0; i < expensesPerProfile; i++) {
+                        String expenseId = UUID.randomUUID().toString();
+                        LocalDate date = today.minusDays(i % 365);
+                        String category = "Category " + i % CATEGORIES;
+                        int amount = 1 + i % 100;
+                        expenses.setLong(1, ++id);
+                        expenses.setString(2, expenseId);
+                        expenses.setString(3, "Harness expense " + i);
+                        expenses.setString(4, "seeded by the load harness");
+                        expenses.setString(5, category);
+                        expenses.setDate(6, Date.valueOf(date));
+                        expenses.setBigDecimal(7, BigDecimal.valueOf(amount));
+                        expenses.setTimestamp(8, now);
+                        expenses.setTimestamp(9, now);
+                        expenses.setLong(10, ownerId);
+                        expenses.addBatch();
+                        if (++pending == SEED_BATCH_SIZE) {
+                            expenses.executeBatch();
+                            connection.commit();
+                            pending = 0;
+                        }
+                        long[] total = totals.computeIfAbsent(List.of(Date.valueOf(date.withDayOfMonth(1)), category), key -> new long[2]);
+                        total[0] += amount;
+                        total[1]++;
+                        // clients sharing a profile get disjoint expenses to update and delete
+                        if (!owners.isEmpty()) {
+                            owners.get(i % owners.size()).expenseIds.add(expenseId);
+                        }
+                    }
+                    for (Map.Entry<List<Object>, long[]> total : totals.entrySet()) {
+                        rollups.setLong(1, ownerId);
+                        rollups.setDate(2, (Date) total.getKey().get(0));
+                        rollups.setString(3, (String) total.getKey().get(1));
+                        rollups.setBigDecimal(4, BigDecimal.valueOf(total.getValue()[0]));
+                        rollups.setLong(5, total.getValue()[1]);
+                        rollups.addBatch();
+                    }
+                    rollups.executeBatch();
+                }
+                expenses.executeBatch();
+            }
+            try (Statement statement = connection.createStatement()) {
+                // the pooled generator hands out the ids below the value it reads, so leave a gap
+                statement.execute("alter sequence tbl_expenses_seq restart with " + (id + 1000));
+            }
+            connection.commit();
+        }
+    }
+
+    private void logIn(List<Client> running) {
+        Map<Integer, CompletableFuture<String>> tokens = new HashMap<>();
+        for (Client client : running) {
+            tokens.computeIfAbsent(client.profile, this::token);
+        }
+        for (Client client : running) {
+            client.authorization = tokens.get(client.profile).join();
+        }
+    }
+
+    private CompletableFuture<String> token(int profile) {
+        return httpClient.sendAsync(login(profile), HttpResponse.BodyHandlers.ofString()).thenCompose(response -> {
+            // the login pool sheds what it cannot queue, come back after the Retry-After
+            if (response.statusCode() == 429 || response.statusCode() == 503) {
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(retryAfter, TimeUnit.SECONDS))
+                        .thenCompose(ignored -> token(profile));
+            }
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Login failed with " + response.statusCode() + ": " + response.body());
+            }
+            return CompletableFuture.completedFuture("Bearer " + readTree(response.body()).get("token").asText());
+        });
+    }
+
+    private ObjectNode report(List<Client> running) {
+        ObjectNode report = OBJECT_MAPPER.createObjectNode()
+                .put("label", label)
+                .put("javaVersion", System.getProperty("java.version"))
+                .put("profiles", profiles)
+                .put("expensesPerProfile", expensesPerProfile)
+                .put("clients", clients)
+                .put("mix", mix)
+                .put("durationSeconds", duration.toSeconds());
+        ObjectNode endpoints = OBJECT_MAPPER.createObjectNode();
+        long requests = 0;
+        long errors = 0;
+        for (Operation operation : weights.keySet()) {
+            long[] latencies = running.stream()
+                    .flatMapToLong(client -> Arrays.stream(client.latencies[operation.ordinal()], 0, client.counts[operation.ordinal()]))
+                    .sorted()
+                    .toArray();
+            long failed = running.stream().mapToLong(client -> client.errors[operation.ordinal()]).sum();
+            endpoints.set(operation.endpoint, stats(latencies, failed));
+            requests += latencies.length + failed;
+            errors += failed;
+        }
+        report.put("requests", requests)
+                .put("errors", errors)
+                .put("errorRate", requests == 0 ? 0 : errors / (double) requests)
+                .put("throughputPerSecond", (requests - errors) / (double) duration.toSeconds())
+                .set("endpoints", endpoints);
+        return report;
+    }
+
+    private ObjectNode stats(long[] latencies, long errors) {
+        long requests = latencies.length + errors;
+        return OBJECT_MAPPER.createObjectNode()
+                .put("requests", requests)
+                .put("errors", errors)
+                .put("errorRate", requests == 0 ? 0 : errors / (double) requests)
+                .put("throughputPerSecond", latencies.length / (double) duration.toSeconds())
+                .put("p50Millis", percentile(latencies, 50))
+                .put("p95Millis", percentile(latencies, 95))
+                .put("p99Millis", percentile(latencies, 99))
+                .put("maxMillis", percentile(latencies, 100));
+    }
+
+    private List<String> compareWithBaseline(ObjectNode report) throws IOException {
+        List<String> regressions = new ArrayList<>();
+        if (!baseline.isFile()) {
+            System.out.println("No baseline at " + baseline + ", nothing to compare with");
+            return regressions;
+        }
+        JsonNode expected = OBJECT_MAPPER.readTree(baseline).path("endpoints");
+        report.get("endpoints").fields().forEachRemaining(endpoint -> {
+            JsonNode base = expected.path(endpoint.getKey());
+            if (base.isMissingNode()) {
+                return;
+            }
+            JsonNode actual = endpoint.getValue();
+            double throughput = actual.get("throughputPerSecond").asDouble();
+            if (throughput < base.path("throughputPerSecond").asDouble() * (1 - tolerance)) {
+                regressions.add(describe(endpoint.getKey(), "throughputPerSecond", throughput, base));
+            }
+            for (String percentile : List.of("p95Millis", "p99Millis")) {
+                double latency = actual.get(percentile).asDouble();
+                if (latency > base.path(percentile).asDouble() * (1 + tolerance)) {
+                    regressions.add(describe(endpoint.getKey(), percentile, latency, base));
+                }
+            }
+            double errorRate = actual.get("errorRate").asDouble();
+            if (errorRate > base.path("errorRate").asDouble() + errorTolerance) {
+                regressions.add(describe(endpoint.getKey(), "errorRate", errorRate, base));
+            }
+        });
+        ArrayNode found = report.putArray("regressions");
+        regressions.forEach(found::add);
+        report.put("baseline", baseline.getPath());
+        return regressions;
+    }
+
+    private static String describe(String endpoint, String metric, double actual, JsonNode base) {
+        return String.format("%s %s: %.3f, baseline %.3f", endpoint, metric, actual, base.path(metric).asDouble());
+    }
+
+    private static void write(ObjectNode report, File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        OBJECT_MAPPER.writer(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        System.out.println(OBJECT_MAPPER.writer(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in harness.mix, got " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("harness.mix has no operation with a positive weight");
+        }
+        return weights;
+    }
+
+    private static String email(int profile) {
+        return "harness-" + profile + "@example.com";
+    }
+
+    private static JsonNode readTree(String body) {
+        try {
+            return OBJECT_MAPPER.readTree(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected response " + body, e);
+        }
+    }
+
+    private HttpRequest login(int profile) {
+        return send("/login", "POST", OBJECT_MAPPER.createObjectNode()
+                .put("email", email(profile))
+                .put("password", PASSWORD), null);
+    }
+
+    private HttpRequest send(String path, String method, JsonNode body, String authorization) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60));
+        if (body == null) {
+            builder.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body.toString()));
+        }
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        return builder.build();
+    }
+
+    private static ObjectNode expense(int sequence) {
+        return OBJECT_MAPPER.createObjectNode()
+                .put("name", "Harness expense " + sequence)
+                .put("note", "written by the load harness")
+                .put("category", "Category " + sequence % CATEGORIES)
+                .put("date", LocalDate.now().minusDays(sequence % 365).toString())
+                .put("amount", 1 + sequence % 100);
+    }
+
+    private enum Operation {
+        LIST("GET /expenses", false),
+        GET("GET /expenses/{expenseId}", true),
+        CREATE("POST /expenses", false),
+        UPDATE("PUT /expenses/{expenseId}", true),
+        DELETE("DELETE /expenses/{expenseId}", true),
+        LOGIN("POST /login", false);
+
+        private final String endpoint;
+
+        private final boolean needsExpense;
+
+        Operation(String endpoint, boolean needsExpense) {
+            this.endpoint = endpoint;
+            this.needsExpense = needsExpense;
+        }
+    }
+
+    /**
+     * One simulated client, logged in as one seeded profile. Its requests never overlap,
+     * so its expense IDs and latencies need no synchronization.
+     */
+    private class Client {
+
+        private final int profile;
+
+        private final List<String> expenseIds = new ArrayList<>();
+
+        private final long[][] latencies = new long[Operation.values().length][64];
+
+        private final int[] counts = new int[Operation.values().length];
+
+        private final long[] errors = new long[Operation.values().length];
+
+        private String authorization;
+
+        private CountDownLatch finished;
+
+        private int sent;
+
+        Client(int profile) {
+            this.profile = profile;
+        }
+
+        void next() {
+            long now = System.nanoTime();
+            if (now >= measureUntil) {
+                finished.countDown();
+                return;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Operation operation = pick(random.nextInt(totalWeight));
+            if (operation.needsExpense && expenseIds.isEmpty()) {
+                operation = Operation.CREATE;
+            }
+            String expenseId = null;
+            if (operation.needsExpense) {
+                int index = random.nextInt(expenseIds.size());
+                expenseId = expenseIds.get(index);
+                if (operation == Operation.DELETE) {
+                    expenseIds.set(index, expenseIds.get(expenseIds.size() - 1));
+                    expenseIds.remove(expenseIds.size() - 1);
+                }
+            }
+            Operation sending = operation;
+            httpClient.sendAsync(request(operation, expenseId), HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+                long end = System.nanoTime();
+                boolean success = failure == null && response.statusCode() / 100 == 2;
+                if (success && sending == Operation.CREATE) {
+                    expenseIds.add(readTree(response.body()).get("expenseId").asText());
+                }
+                if (now >= measureFrom && end <= measureUntil) {
+                    if (success) {
+                        record(sending, end - now);
+                    } else {
+                        errors[sending.ordinal()]++;
+                    }
+                }
+                next();
+            });
+        }
+
+        private Operation pick(int roll) {
+            for (Map.Entry<Operation, Integer> weight : weights.entrySet()) {
+                roll -= weight.getValue();
+                if (roll < 0) {
+                    return weight.getKey();
+                }
+            }
+            throw new IllegalStateException("Roll outside of the total weight");
+        }
+
+        private HttpRequest request(Operation operation, String expenseId) {
+            return switch (operation) {
+                case LIST -> send("/expenses?limit=50", "GET", null, authorization);
+                case GET -> send("/expenses/" + expenseId, "GET", null, authorization);
+                case CREATE -> send("/expenses", "POST", expense(sent++), authorization);
+                case UPDATE -> send("/expenses/" + expenseId, "PUT", expense(sent++), authorization);
+                case DELETE -> send("/expenses/" + expenseId, "DELETE", null, authorization);
+                case LOGIN -> login(profile);
+            };
+        }
+
+        private void record(Operation operation, long latency) {
+            int slot = operation.ordinal();
+            if (counts[slot] == latencies[slot].length) {
+                latencies[slot] = Arrays.copyOf(latencies[slot], counts[slot] * 2);
+            }
+            latencies[slot][counts[slot]++] = latency;
+        }
+    }
+}
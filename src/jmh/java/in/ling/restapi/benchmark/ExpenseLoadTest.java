@@ -0,0 +1,247 @@
+package in.ling.restapi.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load test against a running instance. Every simulated client sends its next
+ * request as soon as the previous one completes, alternating between a page of GET /expenses
+ * and a GET /expenses/{expenseId}, so throughput and latency are both bounded by the server.
+ * Requests are sent asynchronously, so a thousand clients need no thousand driver threads.
+ * <p>
+ * Run it once per server mode and compare the JSON reports, for example on Java 21:
+ * <pre>
+ * mvn -Pjava21 package
+ * java -jar target/restapi-0.0.1-SNAPSHOT.jar --spring.threads.virtual.enabled=false
+ * mvn -Pbenchmark compile exec:exec@load-test -Dload.label=platform
+ * java -Djdk.tracePinnedThreads=short -jar target/restapi-0.0.1-SNAPSHOT.jar
+ * mvn -Pbenchmark compile exec:exec@load-test -Dload.label=virtual
+ * </pre>
+ * Settings are read from the load.* system properties, see the benchmark profile in pom.xml.
+ * @author Ling
+ */
+public class ExpenseLoadTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final String baseUrl = System.getProperty("load.url", "http://localhost:8080/api/v1");
+
+    private final int clients = Integer.getInteger("load.clients", 1000);
+
+    private final Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT15S"));
+
+    private final Duration duration = Duration.parse(System.getProperty("load.duration", "PT60S"));
+
+    private final int expenses = Integer.getInteger("load.expenses", 1000);
+
+    private final String email = System.getProperty("load.email", "load-test@example.com");
+
+    private final String password = System.getProperty("load.password", "load-test-password");
+
+    private final String label = System.getProperty("load.label", "run");
+
+    private final File result = new File(System.getProperty("load.result", "target/load-" + label + ".json"));
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private String authorization;
+
+    private List<String> expenseIds;
+
+    private volatile long measureFrom;
+
+    private volatile long measureUntil;
+
+    public static void main(String[] args) throws Exception {
+        new ExpenseLoadTest().run();
+    }
+
+    private void run() throws Exception {
+        authorization = "Bearer " + login();
+        expenseIds = seedExpenses();
+        System.out.printf("Running %d clients against %s: %s warmup, %s measurement%n", clients, baseUrl, warmup, duration);
+
+        long start = System.nanoTime();
+        measureFrom = start + warmup.toNanos();
+        measureUntil = measureFrom + duration.toNanos();
+        CountDownLatch finished = new CountDownLatch(clients);
+        List<Client> running = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(i, finished);
+            running.add(client);
+            client.next();
+        }
+        if (!finished.await(warmup.plus(duration).plusMinutes(2).toMillis(), TimeUnit.MILLISECONDS)) {
+            System.out.println("Some clients did not finish in time, their last request is not counted");
+        }
+
+        long[] latencies = running.stream().flatMapToLong(client -> Arrays.stream(client.latencies, 0, client.count)).sorted().toArray();
+        writeReport(latencies);
+    }
+
+    private String login() throws IOException, InterruptedException {
+        ObjectNode credentials = OBJECT_MAPPER.createObjectNode()
+                .put("name", "Load Test")
+                .put("email", email)
+                .put("password", password);
+        // registering an existing profile fails with 409, which is fine
+        send(post("/register", credentials, null));
+        HttpResponse<String> response = send(post("/login", credentials, null));
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with " + response.statusCode() + ": " + response.body());
+        }
+        return OBJECT_MAPPER.readTree(response.body()).get("token").asText();
+    }
+
+    private List<String> seedExpenses() throws IOException, InterruptedException {
+        List<String> ids = new ArrayList<>();
+        for (JsonNode expense : OBJECT_MAPPER.readTree(send(get("/expenses?unpaged=true")).body())) {
+            ids.add(expense.get("expenseId").asText());
+        }
+        while (ids.size() < expenses) {
+            ArrayNode operations = OBJECT_MAPPER.createArrayNode();
+            for (int i = 0; i < Math.min(500, expenses - ids.size()); i++) {
+                operations.addObject()
+                        .put("operation", "CREATE")
+                        .set("expense", OBJECT_MAPPER.createObjectNode()
+                                .put("name", "Load expense " + (ids.size() + i))
+                                .put("note", "seeded by the load test")
+                                .put("category", "Category " + i % 10)
+                                .put("date", LocalDate.now().minusDays(i % 365).toString())
+                                .put("amount", 1 + i % 100));
+            }
+            HttpResponse<String> response = send(post("/expenses/batch",
+                    OBJECT_MAPPER.createObjectNode().set("operations", operations), authorization));
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+            }
+            for (JsonNode outcome : OBJECT_MAPPER.readTree(response.body()).get("results")) {
+                ids.add(outcome.get("expenseId").asText());
+            }
+        }
+        return ids;
+    }
+
+    private void writeReport(long[] latencies) throws IOException {
+        ObjectNode report = OBJECT_MAPPER.createObjectNode()
+                .put("label", label)
+                .put("javaVersion", System.getProperty("java.version"))
+                .put("clients", clients)
+                .put("durationSeconds", duration.toSeconds())
+                .put("requests", latencies.length)
+                .put("errors", errors.get())
+                .put("throughputPerSecond", latencies.length / (double) duration.toSeconds())
+                .put("p50Millis", percentile(latencies, 50))
+                .put("p90Millis", percentile(latencies, 90))
+                .put("p99Millis", percentile(latencies, 99))
+                .put("maxMillis", percentile(latencies, 100));
+        result.getAbsoluteFile().getParentFile().mkdirs();
+        OBJECT_MAPPER.writer(SerializationFeature.INDENT_OUTPUT).writeValue(result, report);
+        System.out.println(OBJECT_MAPPER.writer(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report));
+        System.out.println("Report written to " + result);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", authorization)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, JsonNode body, String authorization) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(OBJECT_MAPPER.writeValueAsString(body)));
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        return builder.build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * One simulated client. Its requests never overlap, so the latencies need no synchronization.
+     */
+    private class Client {
+
+        private final int id;
+
+        private final CountDownLatch finished;
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private int sent;
+
+        Client(int id, CountDownLatch finished) {
+            this.id = id;
+            this.finished = finished;
+        }
+
+        void next() {
+            long now = System.nanoTime();
+            if (now >= measureUntil) {
+                finished.countDown();
+                return;
+            }
+            HttpRequest request = (id + sent++) % 2 == 0
+                    ? get("/expenses?limit=50")
+                    : get("/expenses/" + expenseIds.get(ThreadLocalRandom.current().nextInt(expenseIds.size())));
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long end = System.nanoTime();
+                if (now >= measureFrom && end <= measureUntil) {
+                    if (failure != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        record(end - now);
+                    }
+                }
+                next();
+            });
+        }
+
+        private void record(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package in.ling.restapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures GET /expenses/search at the database level: the FULLTEXT query of
+ * ExpenseRepository.searchFullText for one owner with 100k expenses, against the
+ * LIKE scan it replaces. Needs a MySQL schema created by the application; the
+ * connection is read from BENCHMARK_JDBC_URL, BENCHMARK_JDBC_USER and
+ * BENCHMARK_JDBC_PASSWORD. The benchmark owner and its rows are seeded once and reused, and
+ * the index is created with db/expense-search-index.sql when it is missing.
+ * Both queries search for one word, which is in about a quarter of the rows (common), in
+ * about ten rows (rare) or in none (absent), because the LIKE scan stops as soon as it has
+ * a page of matches and the FULLTEXT query has to rank every match first.
+ * @author Ling
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseSearchBenchmark {
+
+    private static final String OWNER_EMAIL = "search-benchmark@example.com";
+
+    private static final int EXPENSES = 100_000;
+
+    private static final int PAGE_SIZE = 50;
+
+    private static final String[] WORDS = {
+            "coffee", "groceries", "rent", "fuel", "cinema", "pharmacy", "train", "dinner", "lunch", "books",
+            "electricity", "internet", "gym", "taxi", "hotel", "flight", "parking", "insurance", "gift", "repairs"
+    };
+
+    // one in RARE_EVERY notes ends with one of these, so each is in about ten rows
+    private static final String[] RARE_WORDS = {
+            "passport", "dentist", "wedding", "plumber", "laptop", "visa", "tuition", "furniture", "vet", "glasses"
+    };
+
+    private static final int RARE_EVERY = 1_000;
+
+    private static final String ABSENT_WORD = "zeppelin";
+
+    private static final String FULL_TEXT_QUERY = "select * from tbl_expenses e where e.owner_id = ? " +
+            "and match(e.name, e.note) against (? in boolean mode) " +
+            "order by match(e.name, e.note) against (? in boolean mode) desc, e.id desc limit ? offset 0";
+
+    private static final String PATTERN_QUERY = "select * from tbl_expenses e where e.owner_id = ? " +
+            "and (lower(e.name) like ? or lower(e.note) like ?) order by e.date desc, e.id desc limit ?";
+
+    @Param({"common", "rare", "absent"})
+    private String term;
+
+    private Connection connection;
+
+    private long ownerId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                env("BENCHMARK_JDBC_URL", "jdbc:mysql://localhost:3306/expensetransactions?rewriteBatchedStatements=true"),
+                env("BENCHMARK_JDBC_USER", "root"),
+                env("BENCHMARK_JDBC_PASSWORD", "ling0021"));
+        ownerId = findOrCreateOwner();
+        seedExpenses();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*) from information_schema.statistics " +
+                     "where table_schema = database() and table_name = 'tbl_expenses' and index_name = 'ftx_expenses_name_note'")) {
+            rs.next();
+            if (rs.getInt(1) == 0) {
+                statement.execute(indexScript());
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int fullText() throws SQLException {
+        // as ExpenseServiceImpl builds the terms for a one-word query
+        String terms = "+" + searchWord() + "*";
+        try (PreparedStatement statement = connection.prepareStatement(FULL_TEXT_QUERY)) {
+            statement.setLong(1, ownerId);
+            statement.setString(2, terms);
+            statement.setString(3, terms);
+            statement.setInt(4, PAGE_SIZE + 1);
+            return count(statement);
+        }
+    }
+
+    @Benchmark
+    public int pattern() throws SQLException {
+        String pattern = "%" + searchWord() + "%";
+        try (PreparedStatement statement = connection.prepareStatement(PATTERN_QUERY)) {
+            statement.setLong(1, ownerId);
+            statement.setString(2, pattern);
+            statement.setString(3, pattern);
+            statement.setInt(4, PAGE_SIZE + 1);
+            return count(statement);
+        }
+    }
+
+    private long findOrCreateOwner() throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("select id from tbl_profile where email = ?")) {
+            select.setString(1, OWNER_EMAIL);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into tbl_profile (profile_id, email, name, password, created_at, updated_at) values (?, ?, ?, ?, now(), now())",
+                Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, UUID.randomUUID().toString());
+            insert.setString(2, OWNER_EMAIL);
+            insert.setString(3, "Search Benchmark");
+            insert.setString(4, "not-a-password");
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private void seedExpenses() throws SQLException {
+        int existing;
+        try (PreparedStatement count = connection.prepareStatement("select count(*) from tbl_expenses where owner_id = ?")) {
+            count.setLong(1, ownerId);
+            try (ResultSet rs = count.executeQuery()) {
+                rs.next();
+                existing = rs.getInt(1);
+            }
+        }
+        if (existing >= EXPENSES) {
+            return;
+        }
+        long nextId;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select coalesce(max(id), 0) + 1 from tbl_expenses")) {
+            rs.next();
+            nextId = rs.getLong(1);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate today = LocalDate.now();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into tbl_expenses (id, expense_id, name, note, category, date, amount, created_at, updated_at, owner_id) " +
+                        "values (?, ?, ?, ?, ?, ?, ?, now(), now(), ?)")) {
+            for (int i = existing; i < EXPENSES; i++) {
+                insert.setLong(1, nextId++);
+                insert.setString(2, UUID.randomUUID().toString());
+                insert.setString(3, randomWord() + " " + randomWord());
+                String note = randomWord() + " " + randomWord() + " " + randomWord();
+                if (i % RARE_EVERY == 0) {
+                    note += " " + RARE_WORDS[i / RARE_EVERY % RARE_WORDS.length];
+                }
+                insert.setString(4, note);
+                insert.setString(5, "Category " + random.nextInt(10));
+                insert.setDate(6, java.sql.Date.valueOf(today.minusDays(random.nextInt(3650))));
+                insert.setBigDecimal(7, BigDecimal.valueOf(random.nextInt(1, 100_000), 2));
+                insert.setLong(8, ownerId);
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        // keep the pooled id generator ahead of the ids used above
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("update tbl_expenses_seq set next_val = greatest(next_val, " + nextId + ")");
+        }
+    }
+
+    // the script is one statement after its comment lines
+    private static String indexScript() {
+        try (InputStream script = ExpenseSearchBenchmark.class.getResourceAsStream("/db/expense-search-index.sql")) {
+            return new String(script.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .filter(line -> !line.startsWith("--"))
+                    .collect(Collectors.joining("\n"))
+                    .replace(";", "");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static int count(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private String searchWord() {
+        return switch (term) {
+            case "common" -> randomWord();
+            case "rare" -> RARE_WORDS[ThreadLocalRandom.current().nextInt(RARE_WORDS.length)];
+            default -> ABSENT_WORD;
+        };
+    }
+
+    private static String randomWord() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
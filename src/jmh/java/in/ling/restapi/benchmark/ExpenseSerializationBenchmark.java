@@ -0,0 +1,63 @@
+package in.ling.restapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import in.ling.restapi.io.ExpenseResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson serialization of the GET /expenses response body at different list sizes,
+ * using an ObjectMapper configured the way Spring Boot configures it.
+ * @author Ling
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+
+    private List<ExpenseResponse> expenses;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        expenses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            expenses.add(ExpenseResponse.builder()
+                    .expenseId(UUID.randomUUID().toString())
+                    .name("Expense " + i)
+                    .note("Note " + i)
+                    .category("Category " + (i % 10))
+                    .date(Date.valueOf("2024-03-15"))
+                    .amount(BigDecimal.valueOf(i, 2))
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(expenses);
+    }
+}
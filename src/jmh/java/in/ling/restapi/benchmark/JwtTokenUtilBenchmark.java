@@ -0,0 +1,55 @@
+package in.ling.restapi.benchmark;
+
+import in.ling.restapi.util.JwtTokenUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures signing and validating a token, the two JwtTokenUtil calls made on every login
+ * and on every authenticated request, with and without the verified-claims cache.
+ * @author Ling
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenUtilBenchmark {
+
+    @Param({"false", "true"})
+    private boolean claimsCache;
+
+    private JwtTokenUtil jwtTokenUtil;
+
+    private UserDetails userDetails;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenUtil = new JwtTokenUtil(new SimpleMeterRegistry(), "benchmark-secret", claimsCache, 10_000);
+        userDetails = new User("benchmark@example.com", "password", new ArrayList<>());
+        token = jwtTokenUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenUtil.validateToken(token, userDetails);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return jwtTokenUtil.getUsernameFromToken(token);
+    }
+}
@@ -0,0 +1,95 @@
+package in.ling.restapi.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import in.ling.restapi.entity.ExpenseEntity;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the payload log lines that used to run on every list request, on a 10k-row expense
+ * list: the whole list logged at INFO, the same statement at DEBUG with DEBUG disabled, and the
+ * row count that replaced it. Output goes through a real logback encoder into a null stream, so
+ * only the formatting is measured. The gc profiler reports the bytes allocated per call
+ * (gc.alloc.rate.norm).
+ * @author Ling
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"10000"})
+    private int size;
+
+    private Logger log;
+
+    private List<ExpenseEntity> entities;
+
+    @Setup
+    public void setUp() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        log = context.getLogger(LoggingBenchmark.class);
+        log.detachAndStopAllAppenders();
+        log.setAdditive(false);
+        log.setLevel(Level.INFO);
+        log.addAppender(appender);
+
+        entities = new ArrayList<>(size);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < size; i++) {
+            entities.add(ExpenseEntity.builder()
+                    .id((long) i)
+                    .expenseId(UUID.randomUUID().toString())
+                    .name("Expense " + i)
+                    .note("Note " + i)
+                    .category("Category " + (i % 10))
+                    .date(Date.valueOf("2024-03-15"))
+                    .amount(BigDecimal.valueOf(i, 2))
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .version(0L)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void payloadAtInfo() {
+        log.info("Print the data from repository {}", entities);
+    }
+
+    @Benchmark
+    public void payloadAtDisabledDebug() {
+        log.debug("Print the data from repository {}", entities);
+    }
+
+    @Benchmark
+    public void rowCountAtInfo() {
+        log.info("Fetched {} expenses from repository", entities.size());
+    }
+}
@@ -0,0 +1,102 @@
+package in.ling.restapi.benchmark;
+
+import in.ling.restapi.dto.ExpenseDTO;
+import in.ling.restapi.entity.ExpenseEntity;
+import in.ling.restapi.io.ExpenseRequest;
+import in.ling.restapi.io.ExpenseResponse;
+import in.ling.restapi.mapper.ExpenseMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective ModelMapper bean the application used to register with the
+ * hand-written ExpenseMapper, on the single-expense write chain and on list reads.
+ * @author Ling
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"1", "5000"})
+    private int size;
+
+    private ModelMapper modelMapper;
+
+    private ExpenseMapper expenseMapper;
+
+    private ExpenseRequest request;
+
+    private List<ExpenseEntity> entities;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        expenseMapper = new ExpenseMapper();
+        request = ExpenseRequest.builder()
+                .name("Groceries")
+                .note("Weekly shopping")
+                .category("Food")
+                .date(Date.valueOf("2024-03-15"))
+                .amount(new BigDecimal("42.50"))
+                .build();
+        entities = new ArrayList<>(size);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < size; i++) {
+            entities.add(ExpenseEntity.builder()
+                    .id((long) i)
+                    .expenseId(UUID.randomUUID().toString())
+                    .name("Expense " + i)
+                    .note("Note " + i)
+                    .category("Category " + (i % 10))
+                    .date(Date.valueOf("2024-03-15"))
+                    .amount(BigDecimal.valueOf(i, 2))
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public ExpenseResponse modelMapperWriteChain() {
+        ExpenseDTO dto = modelMapper.map(request, ExpenseDTO.class);
+        ExpenseEntity entity = modelMapper.map(dto, ExpenseEntity.class);
+        return modelMapper.map(modelMapper.map(entity, ExpenseDTO.class), ExpenseResponse.class);
+    }
+
+    @Benchmark
+    public ExpenseResponse expenseMapperWriteChain() {
+        ExpenseDTO dto = expenseMapper.toExpenseDTO(request);
+        ExpenseEntity entity = expenseMapper.toExpenseEntity(dto);
+        return expenseMapper.toExpenseResponse(expenseMapper.toExpenseDTO(entity));
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> modelMapperList() {
+        List<ExpenseResponse> responses = new ArrayList<>(entities.size());
+        for (ExpenseEntity entity : entities) {
+            responses.add(modelMapper.map(modelMapper.map(entity, ExpenseDTO.class), ExpenseResponse.class));
+        }
+        return responses;
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> expenseMapperList() {
+        List<ExpenseResponse> responses = new ArrayList<>(entities.size());
+        for (ExpenseEntity entity : entities) {
+            responses.add(expenseMapper.toExpenseResponse(expenseMapper.toExpenseDTO(entity)));
+        }
+        return responses;
+    }
+}
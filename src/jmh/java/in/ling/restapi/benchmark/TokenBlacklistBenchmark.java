@@ -0,0 +1,54 @@
+package in.ling.restapi.benchmark;
+
+import in.ling.restapi.security.RevokedTokenIndex;
+import in.ling.restapi.util.TokenDigestUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the in-memory side of TokenBlacklistService: blacklist lookups from many request
+ * threads while sign-outs keep adding tokens. Lookups include digesting the token.
+ * @author Ling
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBlacklistBenchmark {
+
+    private static final int PREFILLED_TOKENS = 10_000;
+
+    private static final long EXPIRES_AT = Long.MAX_VALUE;
+
+    private RevokedTokenIndex revokedTokenIndex;
+
+    private final AtomicLong signouts = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        revokedTokenIndex = new RevokedTokenIndex(100_000);
+        for (int i = 0; i < PREFILLED_TOKENS; i++) {
+            revokedTokenIndex.revoke(TokenDigestUtil.digest("revoked-token-" + i), EXPIRES_AT);
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(7)
+    public boolean lookup() {
+        int i = ThreadLocalRandom.current().nextInt(PREFILLED_TOKENS * 2);
+        return revokedTokenIndex.isRevoked(TokenDigestUtil.digest("revoked-token-" + i), System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void signout() {
+        revokedTokenIndex.revoke(TokenDigestUtil.digest("signed-out-token-" + signouts.incrementAndGet()), EXPIRES_AT);
+    }
+}
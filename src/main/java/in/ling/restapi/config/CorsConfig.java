@@ -3,6 +3,7 @@ package in.ling.restapi.config;
 import org.springframework.web.filter.CorsFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 ;
@@ -20,6 +21,8 @@ public class CorsConfig {
         config.setAllowedOriginPatterns(List.of("http://localhost:5173"));
         config.addAllowedMethod("*");
         config.addAllowedHeader("*");
+        config.addExposedHeader(HttpHeaders.ETAG); // clients send it back in If-Match
+        config.addExposedHeader(QueryCountFilter.QUERY_COUNT_HEADER); // diagnostics profile only
         source.registerCorsConfiguration("/**", config);
         return new CorsFilter(source);
     }
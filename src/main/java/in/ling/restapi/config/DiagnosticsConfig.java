@@ -0,0 +1,51 @@
+package in.ling.restapi.config;
+
+import in.ling.restapi.util.QueryCountingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-request SQL statement counting, enabled with the diagnostics profile. Statements are counted
+ * at the JDBC layer, so JdbcTemplate work counts as well as Hibernate's. Budgets per endpoint are
+ * set in application-diagnostics.properties.
+ * @author Ling
+ */
+@Configuration
+@Profile("diagnostics")
+public class DiagnosticsConfig {
+
+    // only the DataSource the application uses is wrapped, the pools behind replica routing would count twice
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && "dataSource".equals(beanName)
+                        ? new QueryCountingDataSource(dataSource) : bean;
+            }
+        };
+    }
+
+    // first in the chain, so the queries of the security filters are counted too
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(
+            @Value("#{${diagnostics.query-budget.endpoints}}") Map<String, Integer> budgets,
+            @Value("${diagnostics.query-budget.default:10}") int defaultBudget,
+            @Value("${diagnostics.query-budget.streaming-endpoints:}") List<String> streamingEndpoints,
+            MeterRegistry meterRegistry) {
+        FilterRegistrationBean<QueryCountFilter> registration =
+                new FilterRegistrationBean<>(new QueryCountFilter(budgets, defaultBudget, streamingEndpoints, meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -1,8 +1,11 @@
 package in.ling.restapi.config;
 
+import in.ling.restapi.security.ActiveProfileCache;
+import in.ling.restapi.security.ProfilePrincipal;
 import in.ling.restapi.service.CustomUserDetailsService;
 import in.ling.restapi.service.TokenBlacklistService;
 import in.ling.restapi.util.JwtTokenUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -28,11 +31,15 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private TokenBlacklistService tokenBlacklistService;
 
+    @Autowired
+    private ActiveProfileCache activeProfileCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         final String requestTokenHeader = request.getHeader("Authorization");
 
         String jwtToken = null;
+        Claims claims = null;
         String email = null;
 
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
@@ -44,7 +51,9 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             }
 
             try {
-                email = jwtTokenUtil.getUsernameFromToken(jwtToken);
+                // the token is verified once here; everything below works off these claims
+                claims = jwtTokenUtil.parseToken(jwtToken);
+                email = claims.getSubject();
             }catch(IllegalArgumentException ex) {
                 throw new RuntimeException("Invalid JWT token");
             }catch(ExpiredJwtException ex) {
@@ -53,9 +62,18 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
 
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+            ProfilePrincipal principal = jwtTokenUtil.getPrincipalFromClaims(claims);
+            UserDetails userDetails;
+            if (principal == null) {
+                // tokens issued before the id claims were added still need the profile lookup
+                userDetails = userDetailsService.loadUserByUsername(email);
+            } else if (activeProfileCache.isActive(principal.getId())) {
+                userDetails = principal;
+            } else {
+                userDetails = null;
+            }
 
-            if (jwtTokenUtil.validateToken(jwtToken, userDetails)) {
+            if (userDetails != null && jwtTokenUtil.validateToken(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -0,0 +1,24 @@
+package in.ling.restapi.config;
+
+import in.ling.restapi.service.TokenBlacklistService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application meters that Spring Boot does not register on its own. HTTP, Hikari, Hibernate and
+ * cache meters are auto-configured; the @Timed service and JWT timers need
+ * management.observations.annotations.enabled.
+ * @author Ling
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder tokenBlacklistMetrics(TokenBlacklistService tokenBlacklistService) {
+        return registry -> Gauge.builder("token.blacklist.size", tokenBlacklistService, TokenBlacklistService::size)
+                .description("Revoked, not yet expired tokens in the in-memory index")
+                .register(registry);
+    }
+}
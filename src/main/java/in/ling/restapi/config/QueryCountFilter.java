@@ -0,0 +1,118 @@
+package in.ling.restapi.config;
+
+import in.ling.restapi.util.QueryCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the SQL statements of every request and returns the count in the X-Query-Count header.
+ * The count is compared with the budget of the endpoint, keyed by method and mapped pattern such
+ * as "GET /expenses/{expenseId}"; an exceeded budget is logged, flagged in the X-Query-Budget
+ * header and counted in the http.server.queries.over.budget meter.
+ * <p>
+ * The response body is buffered so the header can still be set after the handler ran, which is
+ * why this filter only exists in the diagnostics profile. Streaming endpoints such as
+ * "GET /expenses/export" are never buffered: their count is only recorded in the meter, since the
+ * response is committed before the handler returns.
+ * @author Ling
+ */
+@Slf4j
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+
+    public static final String QUERY_BUDGET_HEADER = "X-Query-Budget";
+
+    private final Map<String, Integer> budgets;
+
+    private final int defaultBudget;
+
+    private final MeterRegistry meterRegistry;
+
+    private final List<StreamingEndpoint> streamingEndpoints;
+
+    public QueryCountFilter(Map<String, Integer> budgets, int defaultBudget, List<String> streamingEndpoints, MeterRegistry meterRegistry) {
+        this.budgets = budgets;
+        this.defaultBudget = defaultBudget;
+        this.meterRegistry = meterRegistry;
+        this.streamingEndpoints = streamingEndpoints.stream()
+                .map(String::trim)
+                .filter(endpoint -> !endpoint.isEmpty())
+                .map(StreamingEndpoint::parse)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpServletResponse target = isStreaming(request) ? response : new ContentCachingResponseWrapper(response);
+        QueryCounter.start();
+        int count;
+        try {
+            filterChain.doFilter(request, target);
+        } finally {
+            count = QueryCounter.stop();
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern == null ? "UNKNOWN" : pattern);
+        int budget = budgets.getOrDefault(endpoint, defaultBudget);
+        if (!target.isCommitted()) {
+            target.setHeader(QUERY_COUNT_HEADER, Integer.toString(count));
+            target.setHeader(QUERY_BUDGET_HEADER, count > budget ? "exceeded; max=" + budget : "ok; max=" + budget);
+        }
+        DistributionSummary.builder("http.server.queries")
+                .description("SQL statements per request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(count);
+        if (count > budget) {
+            meterRegistry.counter("http.server.queries.over.budget", "endpoint", endpoint).increment();
+            log.warn("{} ran {} SQL statements, its budget is {}", endpoint, count, budget);
+        }
+        if (target instanceof ContentCachingResponseWrapper wrapper) {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private boolean isStreaming(HttpServletRequest request) {
+        if (streamingEndpoints.isEmpty()) {
+            return false;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        return streamingEndpoints.stream().anyMatch(endpoint -> endpoint.matches(request.getMethod(), path));
+    }
+
+    /**
+     * An endpoint whose response is written while the handler runs, given as "METHOD /pattern".
+     */
+    private record StreamingEndpoint(String method, PathPattern pattern) {
+
+        static StreamingEndpoint parse(String endpoint) {
+            String[] parts = endpoint.split("\\s+", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected METHOD /pattern, got " + endpoint);
+            }
+            return new StreamingEndpoint(parts[0], PathPatternParser.defaultInstance.parse(parts[1]));
+        }
+
+        boolean matches(String requestMethod, PathContainer path) {
+            return method.equalsIgnoreCase(requestMethod) && pattern.matches(path);
+        }
+    }
+}
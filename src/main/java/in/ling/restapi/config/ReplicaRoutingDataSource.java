@@ -0,0 +1,152 @@
+package in.ling.restapi.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import in.ling.restapi.security.ProfilePrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replica pools, round robin, and everything else to the
+ * primary. It must sit behind a LazyConnectionDataSourceProxy, so that the connection is only
+ * fetched once the transaction's read-only flag is known.
+ * <p>
+ * Read-your-writes: once a logged in profile opens a read-write transaction, its reads stay on
+ * the primary for the sticky window, longer than the replicas are expected to lag. The window is
+ * kept per instance, so a load balancer should route a profile to the same instance.
+ * <p>
+ * A replica that fails a health check or a connection attempt is skipped until a later health
+ * check succeeds; with no healthy replica all reads go to the primary.
+ * @author Ling
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final HikariDataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final Cache<Long, Boolean> stickyProfiles;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter primaryRoutes;
+
+    private final Counter replicaRoutes;
+
+    private final Counter fallbacks;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    Duration stickyWindow, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.stickyProfiles = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .maximumSize(100_000)
+                .build();
+        this.primaryRoutes = meterRegistry.counter("datasource.routing", "target", "primary");
+        this.replicaRoutes = meterRegistry.counter("datasource.routing", "target", "replica");
+        this.fallbacks = meterRegistry.counter("datasource.routing.fallbacks");
+        Gauge.builder("datasource.replicas.healthy", this.replicas, list -> list.stream().filter(replica -> replica.healthy).count())
+                .description("Replica pools currently receiving reads")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Long profileId = currentProfileId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (profileId != null) {
+                stickyProfiles.put(profileId, Boolean.TRUE);
+            }
+            return primaryConnection();
+        }
+        if (profileId != null && stickyProfiles.getIfPresent(profileId) != null) {
+            return primaryConnection();
+        }
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaRoutes.increment();
+                return connection;
+            } catch (SQLException ex) {
+                replica.healthy = false;
+                fallbacks.increment();
+                log.warn("Replica {} is unavailable, reads go elsewhere until it passes a health check: {}",
+                        replica.dataSource.getPoolName(), ex.getMessage());
+            }
+        }
+        return primaryConnection();
+    }
+
+    // like HikariDataSource, the pools only open connections with their configured credentials
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections are opened with the configured pool credentials");
+    }
+
+    /**
+     * Validates one connection of every replica and puts recovered replicas back into rotation.
+     */
+    @Scheduled(initialDelayString = "${datasource.replicas.health-check-interval:PT5S}",
+            fixedDelayString = "${datasource.replicas.health-check-interval:PT5S}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(2);
+            } catch (SQLException ex) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("Replica {} is {}", replica.dataSource.getPoolName(), healthy ? "back in rotation" : "out of rotation");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private Connection primaryConnection() throws SQLException {
+        primaryRoutes.increment();
+        return primary.getConnection();
+    }
+
+    private static Long currentProfileId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof ProfilePrincipal principal ? principal.getId() : null;
+    }
+
+    private static class Replica {
+
+        private final HikariDataSource dataSource;
+
+        private volatile boolean healthy = true;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
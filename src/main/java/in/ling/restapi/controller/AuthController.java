@@ -1,44 +1,42 @@
 package in.ling.restapi.controller;
 
 import in.ling.restapi.dto.ProfileDTO;
+import in.ling.restapi.dto.ProfileImportResultDTO;
 import in.ling.restapi.io.AuthRequest;
 import in.ling.restapi.io.AuthResponse;
+import in.ling.restapi.io.ProfileImportRequest;
+import in.ling.restapi.io.ProfileImportResponse;
+import in.ling.restapi.io.ProfileImportResultResponse;
 import in.ling.restapi.io.ProfileRequest;
 import in.ling.restapi.io.ProfileResponse;
-import in.ling.restapi.service.CustomUserDetailsService;
+import in.ling.restapi.mapper.ProfileMapper;
+import in.ling.restapi.service.LoginService;
 import in.ling.restapi.service.ProfileService;
 import in.ling.restapi.service.TokenBlacklistService;
-import in.ling.restapi.util.JwtTokenUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @RestController
 @Slf4j
 @RequiredArgsConstructor
 public class AuthController {
 
-    private final ModelMapper modelMapper;
+    private final ProfileMapper profileMapper;
 
     private final ProfileService profileService;
 
-    private final AuthenticationManager authenticationManager;
-
-    private final JwtTokenUtil jwtTokenUtil;
-
-    private final CustomUserDetailsService userDetailsService;
+    private final LoginService loginService;
 
     private final TokenBlacklistService tokenBlacklistService;
 
@@ -51,19 +49,32 @@ public class AuthController {
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/register")
     public ProfileResponse createProfile(@Valid @RequestBody ProfileRequest profileRequest) {
-        log.info("API/ register called {}", profileRequest);
+        log.info("API/ register called");
         ProfileDTO profileDTO = mapToProfileDTO(profileRequest);
         profileDTO = profileService.createProfile(profileDTO);
-        log.info("Print the profile dto details {}", profileDTO);
+        log.debug("Print the profile dto details {}", profileDTO);
         return mapToProfileResponse(profileDTO);
     }
 
+    /**
+     * This method is used to create many profiles at once, for example all employees of a new
+     * customer. Unlike /register it needs an authenticated caller, and it answers 404 unless
+     * profile.import.enabled is set.
+     * @param importRequest the profiles to create
+     * @return the outcome of each profile, in the same order
+     */
+    @PostMapping("/register/batch")
+    public ProfileImportResponse createProfiles(@Valid @RequestBody ProfileImportRequest importRequest) {
+        log.info("API/ register/batch called with {} profiles", importRequest.getProfiles().size());
+        List<ProfileDTO> profileDTOs = importRequest.getProfiles().stream().map(this::mapToProfileDTO).collect(Collectors.toList());
+        List<ProfileImportResultDTO> results = profileService.createProfiles(profileDTOs);
+        return new ProfileImportResponse(results.stream().map(this::mapToProfileImportResultResponse).collect(Collectors.toList()));
+    }
+
     @PostMapping("/login")
     public AuthResponse authenticateProfile(@RequestBody AuthRequest authRequest) throws Exception {
-        log.info("API/ authenticate called {}", authRequest);
-        authenticate(authRequest);
-        final UserDetails userDetails =  userDetailsService.loadUserByUsername(authRequest.getEmail());
-        final String token = jwtTokenUtil.generateToken(userDetails);
+        log.info("API/ authenticate called");
+        final String token = authenticate(authRequest);
         return new AuthResponse(token, authRequest.getEmail());
     }
 
@@ -84,10 +95,9 @@ public class AuthController {
         return null;
     }
 
-    private void authenticate(AuthRequest authRequest) throws Exception {
+    private String authenticate(AuthRequest authRequest) throws Exception {
         try{
-            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(authRequest.getEmail(), authRequest.getPassword()));
-
+            return loginService.login(authRequest.getEmail(), authRequest.getPassword());
         }catch (DisabledException ex){
             throw new Exception("Profile disabled");
         }catch (BadCredentialsException ex){
@@ -102,7 +112,7 @@ public class AuthController {
      * @return the profile dto
      */
     private ProfileDTO mapToProfileDTO(@Valid ProfileRequest profileRequest) {
-        return modelMapper.map(profileRequest, ProfileDTO.class);
+        return profileMapper.toProfileDTO(profileRequest);
     }
 
     /**
@@ -111,6 +121,21 @@ public class AuthController {
      * @return the profile response
      */
     private ProfileResponse mapToProfileResponse(ProfileDTO profileDTO) {
-        return  modelMapper.map(profileDTO, ProfileResponse.class);
+        return profileMapper.toProfileResponse(profileDTO);
+    }
+
+    /**
+     * This method is used to map ProfileImportResultDTO to ProfileImportResultResponse.
+     * @param result the import result dto
+     * @return the import result response
+     */
+    private ProfileImportResultResponse mapToProfileImportResultResponse(ProfileImportResultDTO result) {
+        return ProfileImportResultResponse.builder()
+                .index(result.getIndex())
+                .email(result.getEmail())
+                .status(result.getStatus())
+                .message(result.getMessage())
+                .profile(result.getProfile() == null ? null : mapToProfileResponse(result.getProfile()))
+                .build();
     }
 }
@@ -1,16 +1,57 @@
 package in.ling.restapi.controller;
 
+import in.ling.restapi.dto.ExpenseBatchItemDTO;
+import in.ling.restapi.dto.ExpenseBatchResultDTO;
 import in.ling.restapi.dto.ExpenseDTO;
+import in.ling.restapi.dto.ExpenseFilterDTO;
+import in.ling.restapi.dto.ExpenseIngestStatusDTO;
+import in.ling.restapi.dto.ExpensePageDTO;
+import in.ling.restapi.dto.ExpenseSearchDTO;
+import in.ling.restapi.dto.ExpenseSummaryDTO;
+import in.ling.restapi.dto.ExpenseSummaryGrouping;
+import in.ling.restapi.dto.ExpensesVersionDTO;
+import in.ling.restapi.exceptions.InvalidRequestException;
+import in.ling.restapi.io.ExpenseBatchItemRequest;
+import in.ling.restapi.io.ExpenseBatchRequest;
+import in.ling.restapi.io.ExpenseBatchResponse;
+import in.ling.restapi.io.ExpenseBatchResultResponse;
+import in.ling.restapi.io.ExpenseBulkDeleteRequest;
+import in.ling.restapi.io.ExpenseBulkDeleteResponse;
+import in.ling.restapi.io.ExpenseIngestStatusResponse;
+import in.ling.restapi.io.ExpensePageResponse;
+import in.ling.restapi.io.ExpensePatchRequest;
+import in.ling.restapi.io.ExpenseRollupResponse;
+import in.ling.restapi.io.ExpenseSearchResponse;
+import in.ling.restapi.io.ExpenseSummaryResponse;
 import in.ling.restapi.io.ExpenseRequest;
 import in.ling.restapi.io.ExpenseResponse;
+import in.ling.restapi.mapper.ExpenseMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.ling.restapi.service.ExpenseIngestService;
 import in.ling.restapi.service.ExpenseService;
+import in.ling.restapi.util.ExpenseETags;
+import in.ling.restapi.util.ExpenseExportFormat;
+import in.ling.restapi.util.ExpenseExportWriter;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.stream.Collectors;
 /**
@@ -23,78 +64,405 @@ import java.util.stream.Collectors;
 public class ExpenseController {
 
     private final ExpenseService expenseService;
-    private final ModelMapper modelMapper;
+    private final ExpenseMapper expenseMapper;
+    private final ObjectMapper objectMapper;
+    private final ExpenseIngestService expenseIngestService;
 
     /**
-     * @description This method handles GET requests to fetch all expenses.
-     * @return List of ExpenseResponse objects containing expense details.
+     * @description This method handles GET requests to fetch a page of expenses, newest first.
+     * @param limit The maximum number of expenses to return.
+     * @param cursor The cursor returned with the previous page, absent for the first page.
+     * @param from The first date to include.
+     * @param to The last date to include.
+     * @param category The categories to include, repeatable.
+     * @param minAmount The smallest amount to include.
+     * @param maxAmount The largest amount to include.
+     * @param name The prefix the expense name has to start with.
+     * @param webRequest The current request, used to answer conditional requests.
+     * @return ExpensePageResponse containing the expenses and the cursor for the next page.
      */
     @GetMapping("/expenses")
-    public List<ExpenseResponse> getExpense() {
-        log.info("API GET /expenses called");
+    public ResponseEntity<ExpensePageResponse> getExpensesPage(@RequestParam(required = false) Integer limit,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                               @RequestParam(required = false) List<String> category,
+                                               @RequestParam(required = false) BigDecimal minAmount,
+                                               @RequestParam(required = false) BigDecimal maxAmount,
+                                               @RequestParam(required = false) String name,
+                                               WebRequest webRequest) {
+        log.info("API GET /expenses called with limit {} and cursor {}", limit, cursor);
+        if (isCollectionNotModified(webRequest)) {
+            return null;
+        }
+        ExpenseFilterDTO filter = ExpenseFilterDTO.builder()
+                .from(from == null ? null : Date.valueOf(from))
+                .to(to == null ? null : Date.valueOf(to))
+                .categories(category)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .namePrefix(name)
+                .build();
+        ExpensePageDTO page = expenseService.getExpensesPage(filter, cursor, limit);
+        List<ExpenseResponse> response = page.getExpenses().stream().map(expenseDTO -> mapToExpenseResponse(expenseDTO)).collect(Collectors.toList());
+        return revalidated(new ExpensePageResponse(response, page.getNextCursor()));
+    }
+
+    /**
+     * @description This method handles GET requests to fetch all expenses in one unpaged response.
+     * Clients have to opt in with the unpaged=true parameter.
+     * @param webRequest The current request, used to answer conditional requests.
+     * @return List of ExpenseResponse objects containing expense details.
+     */
+    @GetMapping(value = "/expenses", params = "unpaged=true")
+    public ResponseEntity<List<ExpenseResponse>> getExpense(WebRequest webRequest) {
+        log.info("API GET /expenses?unpaged=true called");
+        if (isCollectionNotModified(webRequest)) {
+            return null;
+        }
         // Call the service method to fetch all expenses
         List<ExpenseDTO> list = expenseService.getAllExpenses();
-        log.info("Print the data from service {}", list);
-        // Convert the list of ExpenseDTOs to a list of ExpenseResponse objects using ModelMapper
+        log.debug("Fetched {} expenses from service", list.size());
+        // Convert the list of ExpenseDTOs to a list of ExpenseResponse objects
         List<ExpenseResponse> response =  list.stream().map(expenseDTO -> mapToExpenseResponse(expenseDTO)).collect(Collectors.toList());
         // Return the list of ExpenseResponse objects
-        return response;
+        return revalidated(response);
+    }
+
+    /**
+     * @description This method handles GET requests to search expense names and notes.
+     * @param q The free-text words to search for.
+     * @param page The zero-based page number.
+     * @param size The maximum number of expenses to return.
+     * @param webRequest The current request, used to answer conditional requests.
+     * @return ExpenseSearchResponse containing the matching expenses, best matches first.
+     */
+    @GetMapping("/expenses/search")
+    public ResponseEntity<ExpenseSearchResponse> searchExpenses(@RequestParam String q,
+                                                                @RequestParam(required = false) Integer page,
+                                                                @RequestParam(required = false) Integer size,
+                                                                WebRequest webRequest) {
+        log.info("API GET /expenses/search called with page {} and size {}", page, size);
+        if (isCollectionNotModified(webRequest)) {
+            return null;
+        }
+        ExpenseSearchDTO result = expenseService.searchExpenses(q, page, size);
+        List<ExpenseResponse> response = result.getExpenses().stream().map(expenseDTO -> mapToExpenseResponse(expenseDTO)).collect(Collectors.toList());
+        return revalidated(new ExpenseSearchResponse(response, result.getPage(), result.getSize(), result.isHasNext()));
+    }
+
+    /**
+     * @description This method handles GET requests to export all expenses as NDJSON or CSV.
+     * Rows are written to the response as they are read from the database.
+     * @param format The export format, either ndjson or csv.
+     * @param response The servlet response the rows are streamed to.
+     */
+    @GetMapping("/expenses/export")
+    public void exportExpenses(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        log.info("API GET /expenses/export called with format {}", format);
+        ExpenseExportFormat exportFormat = ExpenseExportFormat.fromParameter(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"expenses." + exportFormat.getFileExtension() + "\"");
+        try (ExpenseExportWriter writer = new ExpenseExportWriter(exportFormat, objectMapper, response.getOutputStream())) {
+            expenseService.exportExpenses(expenseDTO -> {
+                try {
+                    writer.write(mapToExpenseResponse(expenseDTO));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            log.info("Exported {} expenses", writer.getRowCount());
+        }
+    }
+
+    /**
+     * @description This method handles GET requests to summarize expenses within a date range.
+     * @param from The first date of the range, inclusive.
+     * @param to The last date of the range, inclusive.
+     * @param groupBy The grouping, one of category, month, week or day.
+     * @param webRequest The current request, used to answer conditional requests.
+     * @return ExpenseSummaryResponse with the total, count, min, max and average per bucket.
+     */
+    @GetMapping("/expenses/summary")
+    public ResponseEntity<ExpenseSummaryResponse> getExpenseSummary(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                    @RequestParam(defaultValue = "category") String groupBy,
+                                                                    WebRequest webRequest) {
+        log.info("API GET /expenses/summary called from {} to {} grouped by {}", from, to, groupBy);
+        ExpenseSummaryGrouping grouping = ExpenseSummaryGrouping.fromParameter(groupBy);
+        if (isCollectionNotModified(webRequest)) {
+            return null;
+        }
+        List<ExpenseSummaryDTO> summary = expenseService.getExpenseSummary(Date.valueOf(from), Date.valueOf(to), grouping);
+        return revalidated(ExpenseSummaryResponse.builder()
+                .groupBy(grouping.name().toLowerCase())
+                .from(Date.valueOf(from))
+                .to(Date.valueOf(to))
+                .buckets(summary.stream().map(expenseMapper::toExpenseSummaryBucketResponse).collect(Collectors.toList()))
+                .build());
+    }
+
+    /**
+     * @description This method handles GET requests to fetch monthly totals per category.
+     * They are read from the rollup table instead of being recomputed from every expense.
+     * @param from The first month, formatted as yyyy-MM.
+     * @param to The last month, formatted as yyyy-MM.
+     * @param webRequest The current request, used to answer conditional requests.
+     * @return List of ExpenseRollupResponse objects, one per month and category.
+     */
+    @GetMapping("/expenses/summary/monthly")
+    public ResponseEntity<List<ExpenseRollupResponse>> getMonthlyRollups(@RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+                                                                         @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+                                                                         WebRequest webRequest) {
+        log.info("API GET /expenses/summary/monthly called from {} to {}", from, to);
+        if (isCollectionNotModified(webRequest)) {
+            return null;
+        }
+        return revalidated(expenseService.getMonthlyRollups(from, to).stream().map(expenseMapper::toExpenseRollupResponse).collect(Collectors.toList()));
     }
 
     /**
      * @description This method handles GET requests to fetch an expense by its ID.
      * @param expenseId The ID of the expense to be fetched.
+     * @param webRequest The current request, used to answer conditional requests.
      * @return The ExpenseResponse object containing the expense details.
      */
 
     @GetMapping("/expenses/{expenseId}")
-    public ExpenseResponse getExpenseId(@PathVariable String expenseId) {
+    public ResponseEntity<ExpenseResponse> getExpenseId(@PathVariable String expenseId, WebRequest webRequest) {
         log.info("API GET /expenses/{} called", expenseId);
+        if (webRequest.checkNotModified(ExpenseETags.forExpense(expenseService.getExpenseVersion(expenseId)))) {
+            return null;
+        }
         ExpenseDTO expenseDTO = expenseService.getExpenseByExpenseId(expenseId);
-        log.info("Print the expense details {}", expenseDTO);
-        return mapToExpenseResponse(expenseDTO);
+        log.debug("Print the expense details {}", expenseDTO);
+        return revalidated(mapToExpenseResponse(expenseDTO));
     }
 
     /**
      * @description This method handles DELETE requests to delete an expense by its ID.
+     * An If-Match header makes the delete conditional on the expense's current ETag.
      * @param expenseId The ID of the expense to be deleted.
+     * @param ifMatch The ETag the client has seen, if any.
      */
-    @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("/expenses/{expenseId}")
-    public void deleteExpenseByExpenseId(@PathVariable String expenseId) {
+    public ResponseEntity<Void> deleteExpenseByExpenseId(@PathVariable String expenseId,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("API DELETE /expenses/{} called", expenseId);
-        expenseService.deleteExpenseByExpenseId(expenseId);
+        expenseService.deleteExpenseByExpenseId(expenseId, ExpenseETags.parseIfMatch(ifMatch));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * @description This method handles POST requests to delete many expenses, selected either by
+     * their IDs or by a date range and categories. The rows are deleted in bounded chunks.
+     * @param bulkDeleteRequest The request object selecting the expenses to delete.
+     * @return The ExpenseBulkDeleteResponse object with the number of deleted expenses.
+     */
+    @PostMapping("/expenses/bulk-delete")
+    public ExpenseBulkDeleteResponse deleteExpenses(@RequestBody ExpenseBulkDeleteRequest bulkDeleteRequest) {
+        log.info("API POST /expenses/bulk-delete called");
+        boolean byIds = bulkDeleteRequest.getExpenseIds() != null && !bulkDeleteRequest.getExpenseIds().isEmpty();
+        boolean byFilter = bulkDeleteRequest.getFrom() != null || bulkDeleteRequest.getTo() != null
+                || (bulkDeleteRequest.getCategories() != null && !bulkDeleteRequest.getCategories().isEmpty());
+        if (byIds == byFilter) {
+            throw new InvalidRequestException("Either expenseIds or a date range and categories are required, not both");
+        }
+        long deleted = byIds ? expenseService.deleteExpenses(bulkDeleteRequest.getExpenseIds())
+                : expenseService.deleteExpenses(ExpenseFilterDTO.builder()
+                        .from(bulkDeleteRequest.getFrom())
+                        .to(bulkDeleteRequest.getTo())
+                        .categories(bulkDeleteRequest.getCategories())
+                        .build());
+        return new ExpenseBulkDeleteResponse(deleted);
     }
 
     /**
      * @description This method handles POST requests to save expense details.
+     * When the request prefers asynchronous processing (a respond-async token in any Prefer
+     * header) and ingestion is enabled, the expense is validated, journaled and queued, and a 202
+     * with its expenseId and status location is returned before it is in the database. Otherwise
+     * the preference is ignored and the expense is saved before the 201 is returned.
      * @param expenseRequest The request object containing expense details.
-     * @return The saved ExpenseResponse object.
+     * @param preferences The values of the Prefer headers, if any.
+     * @return A 201 with the saved expense, or a 202 with the ingestion status.
      */
-    @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/expenses")
-    public ExpenseResponse saveExpenseDetails(@Valid @RequestBody ExpenseRequest expenseRequest) {
-        log.info("API POST /expenses called {}", expenseRequest);
-        ExpenseDTO expenseDTO = mapToExpenseDTO(expenseRequest);
-        expenseDTO = expenseService.saveExpenseDetails(expenseDTO);
-        log.info("Print the expense dto {}", expenseDTO);
-        return mapToExpenseResponse(expenseDTO);
+    public ResponseEntity<?> saveExpenseDetails(@Valid @RequestBody ExpenseRequest expenseRequest,
+                                                @RequestHeader(value = "Prefer", required = false) List<String> preferences) {
+        if (!expenseIngestService.isEnabled() || !prefersRespondAsync(preferences)) {
+            log.info("API POST /expenses called");
+            log.debug("Request body {}", expenseRequest);
+            ExpenseDTO expenseDTO = mapToExpenseDTO(expenseRequest);
+            expenseDTO = expenseService.saveExpenseDetails(expenseDTO);
+            log.debug("Print the expense dto {}", expenseDTO);
+            return ResponseEntity.status(HttpStatus.CREATED).body(mapToExpenseResponse(expenseDTO));
+        }
+        log.debug("API POST /expenses called with Prefer: respond-async");
+        ExpenseIngestStatusDTO status = expenseIngestService.accept(mapToExpenseDTO(expenseRequest));
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/expenses/ingest/{expenseId}")
+                        .buildAndExpand(status.getExpenseId())
+                        .toUri())
+                .header("Preference-Applied", "respond-async")
+                .body(mapToExpenseIngestStatusResponse(status));
+    }
+
+    /**
+     * @description This method handles GET requests for the status of an asynchronously created expense.
+     * @param expenseId The ID returned when the expense was accepted.
+     * @return The ExpenseIngestStatusResponse object: PENDING, PERSISTED or FAILED.
+     */
+    @GetMapping("/expenses/ingest/{expenseId}")
+    public ExpenseIngestStatusResponse getIngestStatus(@PathVariable String expenseId) {
+        return mapToExpenseIngestStatusResponse(expenseIngestService.getStatus(expenseId));
     }
 
 
     /**
      * @description This method handles PUT requests to update expense details.
+     * An If-Match header makes the update conditional on the expense's current ETag.
      * @param updateRequest The request object containing updated expense details.
      * @param expenseId The ID of the expense to be updated.
-     * @return The updated ExpenseResponse object.
+     * @param ifMatch The ETag the client has seen, if any.
+     * @return The updated ExpenseResponse object, tagged with its new ETag.
      */
     @PutMapping("/expenses/{expenseId}")
-    public ExpenseResponse updateExpenseDetails(@Valid @RequestBody ExpenseRequest updateRequest, @PathVariable String expenseId) {
-        log.info("API PUT /expenses/{} request body {}", expenseId, updateRequest);
+    public ResponseEntity<ExpenseResponse> updateExpenseDetails(@Valid @RequestBody ExpenseRequest updateRequest,
+                                                                @PathVariable String expenseId,
+                                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("API PUT /expenses/{} called", expenseId);
+        log.debug("Request body {}", updateRequest);
         ExpenseDTO updatedExpenseDTO = mapToExpenseDTO(updateRequest);
-        updatedExpenseDTO = expenseService.updateExpenseDetails(updatedExpenseDTO, expenseId);
-        log.info("Printing the updated expense dto details {}", updatedExpenseDTO);
-        return mapToExpenseResponse(updatedExpenseDTO);
+        updatedExpenseDTO = expenseService.updateExpenseDetails(updatedExpenseDTO, expenseId, ExpenseETags.parseIfMatch(ifMatch));
+        log.debug("Printing the updated expense dto details {}", updatedExpenseDTO);
+        return ResponseEntity.ok()
+                .eTag(ExpenseETags.forExpense(updatedExpenseDTO.getVersion()))
+                .body(mapToExpenseResponse(updatedExpenseDTO));
+    }
+
+    /**
+     * @description This method handles PATCH requests to change some details of an expense.
+     * Fields that are absent or null in the request are left unchanged.
+     * @param patchRequest The request object containing the changed expense details.
+     * @param expenseId The ID of the expense to be updated.
+     * @param ifMatch The ETag the client has seen, if any.
+     * @return The updated ExpenseResponse object, tagged with its new ETag.
+     */
+    @PatchMapping("/expenses/{expenseId}")
+    public ResponseEntity<ExpenseResponse> patchExpenseDetails(@Valid @RequestBody ExpensePatchRequest patchRequest,
+                                                               @PathVariable String expenseId,
+                                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("API PATCH /expenses/{} called", expenseId);
+        log.debug("Request body {}", patchRequest);
+        ExpenseDTO patchedExpenseDTO = expenseMapper.toExpenseDTO(patchRequest);
+        patchedExpenseDTO = expenseService.patchExpenseDetails(patchedExpenseDTO, expenseId, ExpenseETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ExpenseETags.forExpense(patchedExpenseDTO.getVersion()))
+                .body(mapToExpenseResponse(patchedExpenseDTO));
+    }
+
+    /**
+     * @description This method handles POST requests to create, update and delete many expenses at once.
+     * All operations run in one transaction; the response reports the outcome of each of them.
+     * @param batchRequest The request object containing the operations.
+     * @return The ExpenseBatchResponse object with one result per operation.
+     */
+    @PostMapping("/expenses/batch")
+    public ExpenseBatchResponse processExpenseBatch(@Valid @RequestBody ExpenseBatchRequest batchRequest) {
+        log.info("API POST /expenses/batch called with {} operations", batchRequest.getOperations().size());
+        List<ExpenseBatchItemDTO> items = batchRequest.getOperations().stream().map(item -> mapToExpenseBatchItemDTO(item)).collect(Collectors.toList());
+        List<ExpenseBatchResultDTO> results = expenseService.processBatch(items);
+        return new ExpenseBatchResponse(results.stream().map(result -> mapToExpenseBatchResultResponse(result)).collect(Collectors.toList()));
+    }
+
+    /**
+     * @description This method compares the conditional request headers with the expense collection
+     * version. On a match the response is already a 304 and nothing has to be loaded; otherwise
+     * the ETag and Last-Modified headers have been added to the response. Either way the response
+     * varies by the Authorization header, because the collection belongs to the caller.
+     * @param webRequest The current request.
+     * @return true when the client's copy is still current.
+     */
+    private boolean isCollectionNotModified(WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servletWebRequest && servletWebRequest.getResponse() != null) {
+            servletWebRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+        }
+        ExpensesVersionDTO version = expenseService.getExpensesVersion();
+        long lastModified = version.getModifiedAt() == null ? -1 : version.getModifiedAt().getTime();
+        return webRequest.checkNotModified(ExpenseETags.forCollection(version.getProfileId(), version.getVersion()), lastModified);
+    }
+
+    /**
+     * @description This method wraps a body in a 200 response that clients have to revalidate before reuse.
+     * @param body The response body.
+     * @return The response entity.
+     */
+    /**
+     * Looks for the respond-async preference (RFC 7240) among the comma separated preferences of
+     * the Prefer headers; a preference may carry a value and parameters, as in "respond-async, wait=5".
+     */
+    private static boolean prefersRespondAsync(List<String> preferences) {
+        if (preferences == null) {
+            return false;
+        }
+        for (String header : preferences) {
+            for (String preference : header.split(",")) {
+                String token = preference.split("[;=]", 2)[0].trim();
+                if ("respond-async".equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private <T> ResponseEntity<T> revalidated(T body) {
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(body);
+    }
+
+    /**
+     * @description This method maps an ExpenseBatchItemRequest object to an ExpenseBatchItemDTO object.
+     * @param itemRequest The ExpenseBatchItemRequest object to be mapped.
+     * @return The mapped ExpenseBatchItemDTO object.
+     */
+    private ExpenseBatchItemDTO mapToExpenseBatchItemDTO(ExpenseBatchItemRequest itemRequest) {
+        return ExpenseBatchItemDTO.builder()
+                .operation(itemRequest.getOperation())
+                .expenseId(itemRequest.getExpenseId())
+                .expense(itemRequest.getExpense() == null ? null : mapToExpenseDTO(itemRequest.getExpense()))
+                .build();
+    }
+
+    /**
+     * @description This method maps an ExpenseIngestStatusDTO object to an ExpenseIngestStatusResponse object.
+     * @param status The ExpenseIngestStatusDTO object to be mapped.
+     * @return The mapped ExpenseIngestStatusResponse object.
+     */
+    private ExpenseIngestStatusResponse mapToExpenseIngestStatusResponse(ExpenseIngestStatusDTO status) {
+        return ExpenseIngestStatusResponse.builder()
+                .expenseId(status.getExpenseId())
+                .status(status.getStatus())
+                .message(status.getMessage())
+                .build();
+    }
+
+    /**
+     * @description This method maps an ExpenseBatchResultDTO object to an ExpenseBatchResultResponse object.
+     * @param result The ExpenseBatchResultDTO object to be mapped.
+     * @return The mapped ExpenseBatchResultResponse object.
+     */
+    private ExpenseBatchResultResponse mapToExpenseBatchResultResponse(ExpenseBatchResultDTO result) {
+        return ExpenseBatchResultResponse.builder()
+                .index(result.getIndex())
+                .operation(result.getOperation())
+                .expenseId(result.getExpenseId())
+                .status(result.getStatus())
+                .message(result.getMessage())
+                .expense(result.getExpense() == null ? null : mapToExpenseResponse(result.getExpense()))
+                .build();
     }
 
     /**
@@ -103,7 +471,7 @@ public class ExpenseController {
      * @return The mapped ExpenseDTO object.
      */
     private ExpenseDTO mapToExpenseDTO(@Valid ExpenseRequest expenseRequest) {
-        return modelMapper.map(expenseRequest, ExpenseDTO.class);
+        return expenseMapper.toExpenseDTO(expenseRequest);
     }
 
     /**
@@ -112,6 +480,6 @@ public class ExpenseController {
      * @return The mapped ExpenseResponse object.
      */
     private ExpenseResponse mapToExpenseResponse(ExpenseDTO expenseDTO) {
-        return modelMapper.map(expenseDTO, ExpenseResponse.class);
+        return expenseMapper.toExpenseResponse(expenseDTO);
     }
 }
@@ -0,0 +1,7 @@
+package in.ling.restapi.dto;
+
+public enum ExpenseBatchOperation {
+    CREATE,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,25 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseBatchResultDTO {
+
+    private Integer index;
+
+    private ExpenseBatchOperation operation;
+
+    private String expenseId;
+
+    private ExpenseBatchStatus status;
+
+    private String message;
+
+    private ExpenseDTO expense;
+}
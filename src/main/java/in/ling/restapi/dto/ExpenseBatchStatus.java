@@ -0,0 +1,9 @@
+package in.ling.restapi.dto;
+
+public enum ExpenseBatchStatus {
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    INVALID
+}
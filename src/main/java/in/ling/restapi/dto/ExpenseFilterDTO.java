@@ -0,0 +1,29 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseFilterDTO {
+
+    private Date from;
+
+    private Date to;
+
+    private List<String> categories;
+
+    private BigDecimal minAmount;
+
+    private BigDecimal maxAmount;
+
+    private String namePrefix;
+}
@@ -0,0 +1,36 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * One accepted but not yet persisted expense, as written to the ingest journal.
+ * @author Ling
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseIngestRecord {
+
+    private long sequence;
+
+    private Long ownerId;
+
+    private String expenseId;
+
+    private String name;
+
+    private String note;
+
+    private String category;
+
+    private Date date;
+
+    private BigDecimal amount;
+}
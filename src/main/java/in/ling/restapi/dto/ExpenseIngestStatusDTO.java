@@ -0,0 +1,19 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseIngestStatusDTO {
+
+    private String expenseId;
+
+    private ExpenseIngestStatus status;
+
+    private String message;
+}
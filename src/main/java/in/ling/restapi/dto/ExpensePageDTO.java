@@ -0,0 +1,19 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpensePageDTO {
+
+    private List<ExpenseDTO> expenses;
+
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseSearchDTO {
+
+    private List<ExpenseDTO> expenses;
+
+    private int page;
+
+    private int size;
+
+    private boolean hasNext;
+}
@@ -0,0 +1,27 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseSummaryDTO {
+
+    private String bucket;
+
+    private BigDecimal total;
+
+    private Long count;
+
+    private BigDecimal minAmount;
+
+    private BigDecimal maxAmount;
+
+    private BigDecimal average;
+}
@@ -0,0 +1,19 @@
+package in.ling.restapi.dto;
+
+import in.ling.restapi.exceptions.InvalidRequestException;
+
+public enum ExpenseSummaryGrouping {
+    CATEGORY,
+    MONTH,
+    WEEK,
+    DAY;
+
+    public static ExpenseSummaryGrouping fromParameter(String groupBy) {
+        for (ExpenseSummaryGrouping value : values()) {
+            if (value.name().equalsIgnoreCase(groupBy)) {
+                return value;
+            }
+        }
+        throw new InvalidRequestException("Unsupported grouping: " + groupBy);
+    }
+}
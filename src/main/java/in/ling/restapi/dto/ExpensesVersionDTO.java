@@ -0,0 +1,21 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpensesVersionDTO {
+
+    private Long profileId;
+
+    private long version;
+
+    private Timestamp modifiedAt;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.sql.Timestamp;
 
@@ -19,6 +20,7 @@ public class ProfileDTO {
 
     private String name;
 
+    @ToString.Exclude
     private String password;
 
     private Timestamp createdAt;
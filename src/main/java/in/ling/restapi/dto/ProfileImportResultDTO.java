@@ -0,0 +1,23 @@
+package in.ling.restapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProfileImportResultDTO {
+
+    private Integer index;
+
+    private String email;
+
+    private ProfileImportStatus status;
+
+    private String message;
+
+    private ProfileDTO profile;
+}
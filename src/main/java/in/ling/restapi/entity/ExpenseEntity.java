@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
@@ -15,16 +18,28 @@ import java.sql.Date;
 import java.sql.Timestamp;
 
 @Entity
-@Table(name = "tbl_expenses")
+@Table(name = "tbl_expenses", indexes = {
+        @Index(name = "idx_expenses_owner_date_id", columnList = "owner_id, date, id"),
+        @Index(name = "idx_expenses_owner_date_category", columnList = "owner_id, date, category"),
+        @Index(name = "idx_expenses_owner_category_date", columnList = "owner_id, category, date"),
+        @Index(name = "idx_expenses_owner_amount", columnList = "owner_id, amount"),
+        @Index(name = "idx_expenses_owner_name", columnList = "owner_id, name")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 
 public class ExpenseEntity {
+
+    public static final String ID_SEQUENCE = "tbl_expenses_seq";
+
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id; // Primary key
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_id_seq")
+    @SequenceGenerator(name = "expense_id_seq", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
+    private Long id; // Primary key, pooled so that inserts can be batched
 
     @Column(unique = true)
     private String expenseId;
@@ -46,8 +61,15 @@ public class ExpenseEntity {
     @UpdateTimestamp
     private Timestamp updatedAt;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version; // optimistic lock, also served as the expense's ETag
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "owner_id", nullable = false)
     @OnDelete(action = OnDeleteAction.CASCADE)
-    private ProfileEntity owner;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ProfileEntity owner; // usually an uninitialized reference, never touch it from toString()
 }
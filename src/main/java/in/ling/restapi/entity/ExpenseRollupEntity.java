@@ -0,0 +1,49 @@
+package in.ling.restapi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+@Entity
+@Table(name = "tbl_expense_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_expense_rollups_owner_month_category", columnNames = {"owner_id", "rollup_month", "category"})
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+
+public class ExpenseRollupEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "owner_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ProfileEntity owner;
+
+    @Column(nullable = false)
+    private Date rollupMonth; // first day of the month
+
+    @Column(nullable = false)
+    private String category;
+
+    @Column(nullable = false)
+    private BigDecimal total;
+
+    @Column(nullable = false)
+    private Long expenseCount;
+}
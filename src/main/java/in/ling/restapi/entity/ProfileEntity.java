@@ -1,10 +1,13 @@
 package in.ling.restapi.entity;
 
+import in.ling.restapi.security.ProfileEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -12,6 +15,7 @@ import java.sql.Timestamp;
 
 @Entity
 @Table(name = "tbl_profile")
+@EntityListeners(ProfileEntityListener.class)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -31,6 +35,7 @@ public class ProfileEntity {
 
     private String name;
 
+    @ToString.Exclude
     private String password;
 
     @Column(updatable = false)
@@ -39,4 +44,12 @@ public class ProfileEntity {
 
     @UpdateTimestamp
     private Timestamp updatedAt;
+
+    // bumped by ProfileRepository.markExpensesChanged on every expense write, never through the entity
+    @ColumnDefault("0")
+    @Column(insertable = false, updatable = false)
+    private Long expensesVersion;
+
+    @Column(insertable = false, updatable = false)
+    private Timestamp expensesModifiedAt;
 }
@@ -6,6 +6,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -52,6 +53,42 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                 .build();
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler({VersionConflictException.class, ObjectOptimisticLockingFailureException.class})
+    public ErrorObject handleVersionConflictException(RuntimeException ex, WebRequest request) {
+        log.error("Throwing the VersionConflictException from GlobalExceptionHandler: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("VERSION_CONFLICT")
+                .statusCode(HttpStatus.CONFLICT.value())
+                .message(ex instanceof VersionConflictException ? ex.getMessage() : "The expense was changed by another request")
+                .timestamp(new Date())
+                .build();
+    }
+
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ErrorObject handlePreconditionFailedException(PreconditionFailedException ex, WebRequest request) {
+        log.error("Throwing the PreconditionFailedException from GlobalExceptionHandler: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("PRECONDITION_FAILED")
+                .statusCode(HttpStatus.PRECONDITION_FAILED.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidRequestException.class)
+    public ErrorObject handleInvalidRequestException(InvalidRequestException ex, WebRequest request) {
+        log.error("Throwing the InvalidRequestException from GlobalExceptionHandler: {}", ex.getMessage());
+        return ErrorObject.builder()
+                .errorCode("INVALID_REQUEST")
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+    }
+
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler(Exception.class)
     public ErrorObject handleGeneralException(Exception ex, WebRequest request) {
@@ -64,6 +101,35 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                 .build();
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorObject> handleServiceUnavailableException(ServiceUnavailableException ex, WebRequest request) {
+        log.warn("Throwing the ServiceUnavailableException from GlobalExceptionHandler: {}", ex.getMessage());
+        ErrorObject errorObject = ErrorObject.builder()
+                .errorCode("SERVICE_UNAVAILABLE")
+                .statusCode(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfter().toSeconds()))
+                .body(errorObject);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorObject> handleTooManyRequestsException(TooManyRequestsException ex, WebRequest request) {
+        // shed load is counted by login.rejected, a log line per rejection would only add to it
+        log.debug("Throwing the TooManyRequestsException from GlobalExceptionHandler: {}", ex.getMessage());
+        ErrorObject errorObject = ErrorObject.builder()
+                .errorCode("TOO_MANY_REQUESTS")
+                .statusCode(HttpStatus.TOO_MANY_REQUESTS.value())
+                .message(ex.getMessage())
+                .timestamp(new Date())
+                .build();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfter().toSeconds()))
+                .body(errorObject);
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
                                                                   HttpHeaders headers,
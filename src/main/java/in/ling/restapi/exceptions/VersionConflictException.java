@@ -0,0 +1,7 @@
+package in.ling.restapi.exceptions;
+
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
 @AllArgsConstructor
@@ -12,5 +13,6 @@ import lombok.NoArgsConstructor;
 public class AuthRequest {
     private String email;
 
+    @ToString.Exclude
     private String password;
 }
@@ -0,0 +1,24 @@
+package in.ling.restapi.io;
+
+import in.ling.restapi.dto.ExpenseBatchOperation;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseBatchItemRequest {
+
+    @NotNull(message = "Batch operation is required")
+    private ExpenseBatchOperation operation;
+
+    private String expenseId;
+
+    @Valid
+    private ExpenseRequest expense;
+}
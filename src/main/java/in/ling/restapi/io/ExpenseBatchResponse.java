@@ -0,0 +1,17 @@
+package in.ling.restapi.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseBatchResponse {
+
+    private List<ExpenseBatchResultResponse> results;
+}
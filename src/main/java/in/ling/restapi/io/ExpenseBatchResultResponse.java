@@ -0,0 +1,27 @@
+package in.ling.restapi.io;
+
+import in.ling.restapi.dto.ExpenseBatchOperation;
+import in.ling.restapi.dto.ExpenseBatchStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseBatchResultResponse {
+
+    private Integer index;
+
+    private ExpenseBatchOperation operation;
+
+    private String expenseId;
+
+    private ExpenseBatchStatus status;
+
+    private String message;
+
+    private ExpenseResponse expense;
+}
@@ -0,0 +1,28 @@
+package in.ling.restapi.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Selects the expenses to delete either by their IDs or by a date range and categories.
+ * @author Ling
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseBulkDeleteRequest {
+
+    private List<String> expenseIds;
+
+    private Date from;
+
+    private Date to;
+
+    private List<String> categories;
+}
@@ -0,0 +1,20 @@
+package in.ling.restapi.io;
+
+import in.ling.restapi.dto.ExpenseIngestStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseIngestStatusResponse {
+
+    private String expenseId;
+
+    private ExpenseIngestStatus status;
+
+    private String message;
+}
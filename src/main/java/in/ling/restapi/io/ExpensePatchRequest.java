@@ -0,0 +1,38 @@
+package in.ling.restapi.io;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Partial expense update; fields that are absent or null are left unchanged.
+ * @author Ling
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpensePatchRequest {
+
+    // null leaves the field alone, but a value present has to pass the same rules as in ExpenseRequest
+    private static final String NOT_BLANK = "(?s).*\\S.*";
+
+    @Pattern(regexp = NOT_BLANK, message = "Expense name is required")
+    @Size(min = 3, message = "Expense name should be at least 3 characters")
+    private String name;
+
+    private String note;
+
+    @Pattern(regexp = NOT_BLANK, message = "Expense category is required")
+    private String category;
+
+    private Date date;
+
+    private BigDecimal amount;
+}
@@ -0,0 +1,23 @@
+package in.ling.restapi.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseRollupResponse {
+
+    private String month;
+
+    private String category;
+
+    private BigDecimal total;
+
+    private Long count;
+}
@@ -0,0 +1,23 @@
+package in.ling.restapi.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseSearchResponse {
+
+    private List<ExpenseResponse> expenses;
+
+    private int page;
+
+    private int size;
+
+    private boolean hasNext;
+}
@@ -0,0 +1,24 @@
+package in.ling.restapi.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Date;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExpenseSummaryResponse {
+
+    private String groupBy;
+
+    private Date from;
+
+    private Date to;
+
+    private List<ExpenseSummaryBucketResponse> buckets;
+}
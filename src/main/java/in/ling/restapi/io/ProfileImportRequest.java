@@ -0,0 +1,20 @@
+package in.ling.restapi.io;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProfileImportRequest {
+
+    @NotEmpty(message = "Profiles are required")
+    private List<@Valid ProfileRequest> profiles;
+}
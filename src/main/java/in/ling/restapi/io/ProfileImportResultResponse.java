@@ -0,0 +1,24 @@
+package in.ling.restapi.io;
+
+import in.ling.restapi.dto.ProfileImportStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProfileImportResultResponse {
+
+    private Integer index;
+
+    private String email;
+
+    private ProfileImportStatus status;
+
+    private String message;
+
+    private ProfileResponse profile;
+}
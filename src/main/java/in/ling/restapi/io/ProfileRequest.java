@@ -8,6 +8,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
 @AllArgsConstructor
@@ -24,5 +25,6 @@ public class ProfileRequest {
 
     @NotNull(message = "Password is required")
     @Size(min = 5, message = "Password should be at least 5 characters")
+    @ToString.Exclude
     private String password;
 }
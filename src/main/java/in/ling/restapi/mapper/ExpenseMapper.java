@@ -0,0 +1,102 @@
+package in.ling.restapi.mapper;
+
+import in.ling.restapi.dto.ExpenseDTO;
+import in.ling.restapi.dto.ExpenseRollupDTO;
+import in.ling.restapi.dto.ExpenseSummaryDTO;
+import in.ling.restapi.entity.ExpenseEntity;
+import in.ling.restapi.io.ExpensePatchRequest;
+import in.ling.restapi.io.ExpenseRequest;
+import in.ling.restapi.io.ExpenseResponse;
+import in.ling.restapi.io.ExpenseRollupResponse;
+import in.ling.restapi.io.ExpenseSummaryBucketResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plain field-by-field mappings between the expense request, dto, entity and response types.
+ * These replace the reflective ModelMapper calls on the request hot path.
+ * @author Ling
+ */
+@Component
+public class ExpenseMapper {
+
+    public ExpenseDTO toExpenseDTO(ExpenseRequest expenseRequest) {
+        return ExpenseDTO.builder()
+                .name(expenseRequest.getName())
+                .note(expenseRequest.getNote())
+                .category(expenseRequest.getCategory())
+                .date(expenseRequest.getDate())
+                .amount(expenseRequest.getAmount())
+                .build();
+    }
+
+    public ExpenseDTO toExpenseDTO(ExpensePatchRequest expensePatchRequest) {
+        return ExpenseDTO.builder()
+                .name(expensePatchRequest.getName())
+                .note(expensePatchRequest.getNote())
+                .category(expensePatchRequest.getCategory())
+                .date(expensePatchRequest.getDate())
+                .amount(expensePatchRequest.getAmount())
+                .build();
+    }
+
+    public ExpenseDTO toExpenseDTO(ExpenseEntity expenseEntity) {
+        return ExpenseDTO.builder()
+                .expenseId(expenseEntity.getExpenseId())
+                .name(expenseEntity.getName())
+                .note(expenseEntity.getNote())
+                .category(expenseEntity.getCategory())
+                .date(expenseEntity.getDate())
+                .amount(expenseEntity.getAmount())
+                .createdAt(expenseEntity.getCreatedAt())
+                .updatedAt(expenseEntity.getUpdatedAt())
+                .version(expenseEntity.getVersion())
+                .build();
+    }
+
+    public ExpenseEntity toExpenseEntity(ExpenseDTO expenseDTO) {
+        return ExpenseEntity.builder()
+                .expenseId(expenseDTO.getExpenseId())
+                .name(expenseDTO.getName())
+                .note(expenseDTO.getNote())
+                .category(expenseDTO.getCategory())
+                .date(expenseDTO.getDate())
+                .amount(expenseDTO.getAmount())
+                .createdAt(expenseDTO.getCreatedAt())
+                .updatedAt(expenseDTO.getUpdatedAt())
+                .version(expenseDTO.getVersion())
+                .build();
+    }
+
+    public ExpenseResponse toExpenseResponse(ExpenseDTO expenseDTO) {
+        return ExpenseResponse.builder()
+                .expenseId(expenseDTO.getExpenseId())
+                .name(expenseDTO.getName())
+                .note(expenseDTO.getNote())
+                .category(expenseDTO.getCategory())
+                .date(expenseDTO.getDate())
+                .amount(expenseDTO.getAmount())
+                .createdAt(expenseDTO.getCreatedAt())
+                .updatedAt(expenseDTO.getUpdatedAt())
+                .build();
+    }
+
+    public ExpenseSummaryBucketResponse toExpenseSummaryBucketResponse(ExpenseSummaryDTO expenseSummaryDTO) {
+        return ExpenseSummaryBucketResponse.builder()
+                .bucket(expenseSummaryDTO.getBucket())
+                .total(expenseSummaryDTO.getTotal())
+                .count(expenseSummaryDTO.getCount())
+                .minAmount(expenseSummaryDTO.getMinAmount())
+                .maxAmount(expenseSummaryDTO.getMaxAmount())
+                .average(expenseSummaryDTO.getAverage())
+                .build();
+    }
+
+    public ExpenseRollupResponse toExpenseRollupResponse(ExpenseRollupDTO expenseRollupDTO) {
+        return ExpenseRollupResponse.builder()
+                .month(expenseRollupDTO.getMonth())
+                .category(expenseRollupDTO.getCategory())
+                .total(expenseRollupDTO.getTotal())
+                .count(expenseRollupDTO.getCount())
+                .build();
+    }
+}
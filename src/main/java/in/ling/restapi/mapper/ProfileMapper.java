@@ -0,0 +1,55 @@
+package in.ling.restapi.mapper;
+
+import in.ling.restapi.dto.ProfileDTO;
+import in.ling.restapi.entity.ProfileEntity;
+import in.ling.restapi.io.ProfileRequest;
+import in.ling.restapi.io.ProfileResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plain field-by-field mappings between the profile request, dto, entity and response types.
+ * @author Ling
+ */
+@Component
+public class ProfileMapper {
+
+    public ProfileDTO toProfileDTO(ProfileRequest profileRequest) {
+        return ProfileDTO.builder()
+                .name(profileRequest.getName())
+                .email(profileRequest.getEmail())
+                .password(profileRequest.getPassword())
+                .build();
+    }
+
+    public ProfileDTO toProfileDTO(ProfileEntity profileEntity) {
+        return ProfileDTO.builder()
+                .profileId(profileEntity.getProfileId())
+                .email(profileEntity.getEmail())
+                .name(profileEntity.getName())
+                .password(profileEntity.getPassword())
+                .createdAt(profileEntity.getCreatedAt())
+                .updatedAt(profileEntity.getUpdatedAt())
+                .build();
+    }
+
+    public ProfileEntity toProfileEntity(ProfileDTO profileDTO) {
+        return ProfileEntity.builder()
+                .profileId(profileDTO.getProfileId())
+                .email(profileDTO.getEmail())
+                .name(profileDTO.getName())
+                .password(profileDTO.getPassword())
+                .createdAt(profileDTO.getCreatedAt())
+                .updatedAt(profileDTO.getUpdatedAt())
+                .build();
+    }
+
+    public ProfileResponse toProfileResponse(ProfileDTO profileDTO) {
+        return ProfileResponse.builder()
+                .profileId(profileDTO.getProfileId())
+                .email(profileDTO.getEmail())
+                .name(profileDTO.getName())
+                .createdAt(profileDTO.getCreatedAt())
+                .updatedAt(profileDTO.getUpdatedAt())
+                .build();
+    }
+}
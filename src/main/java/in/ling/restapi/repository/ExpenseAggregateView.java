@@ -0,0 +1,28 @@
+package in.ling.restapi.repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Projection of one GROUP BY row over tbl_expenses. Only the grouping keys selected by the
+ * query are populated; the others are null.
+ * @author Ling
+ */
+public interface ExpenseAggregateView {
+
+    String getCategory();
+
+    Integer getYear();
+
+    Integer getMonth();
+
+    Date getDay();
+
+    BigDecimal getTotal();
+
+    Long getCount();
+
+    BigDecimal getMinAmount();
+
+    BigDecimal getMaxAmount();
+}
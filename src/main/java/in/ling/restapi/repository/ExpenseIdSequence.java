@@ -0,0 +1,65 @@
+package in.ling.restapi.repository;
+
+import in.ling.restapi.entity.ExpenseEntity;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Moves the expense id sequence past the ids already in tbl_expenses. Expense ids used to come
+ * from an IDENTITY column; when ddl-auto=update adds the sequence to such a database it starts
+ * at 1, and the first pooled block would collide with existing rows. Runs once the schema is in
+ * place and before the application takes requests; it only ever raises the sequence, so nodes
+ * starting together cannot move it back.
+ * @author Ling
+ */
+@Component
+@DependsOn("entityManagerFactory") // the schema is created or updated while the EntityManagerFactory starts
+@RequiredArgsConstructor
+@Slf4j
+public class ExpenseIdSequence {
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignWithExistingIds() throws SQLException {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from tbl_expenses", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        // the pooled optimizer hands out the block (value - allocation size, value], so the next value has to clear max(id) by a block
+        long target = maxId + ExpenseEntity.ID_ALLOCATION_SIZE;
+        String database = databaseProductName();
+        if ("MySQL".equalsIgnoreCase(database)) {
+            // MySQL has no sequences, Hibernate emulates this one with a single row table
+            int rows = jdbcTemplate.update("update " + ExpenseEntity.ID_SEQUENCE + " set next_val = ? where next_val < ?", target, target);
+            if (rows > 0) {
+                log.info("Raised {} to {}, past the existing expense ids", ExpenseEntity.ID_SEQUENCE, target);
+            }
+        } else if ("H2".equalsIgnoreCase(database)) {
+            Long next = jdbcTemplate.queryForObject("select base_value from information_schema.sequences where lower(sequence_name) = ?",
+                    Long.class, ExpenseEntity.ID_SEQUENCE);
+            if (next != null && next < target) {
+                jdbcTemplate.execute("alter sequence " + ExpenseEntity.ID_SEQUENCE + " restart with " + target);
+                log.info("Raised {} to {}, past the existing expense ids", ExpenseEntity.ID_SEQUENCE, target);
+            }
+        } else {
+            log.warn("Cannot check {} on {}, make sure it is past max(tbl_expenses.id)", ExpenseEntity.ID_SEQUENCE, database);
+        }
+    }
+
+    private String databaseProductName() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getDatabaseProductName();
+        }
+    }
+}
@@ -1,10 +1,27 @@
 package in.ling.restapi.repository;
 
 import in.ling.restapi.entity.ExpenseEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing ExpenseEntity objects.
@@ -12,7 +29,7 @@ import java.util.Optional;
  * @author Ling
  */
 
-public interface ExpenseRepository extends JpaRepository<ExpenseEntity, Long> {
+public interface ExpenseRepository extends JpaRepository<ExpenseEntity, Long>, JpaSpecificationExecutor<ExpenseEntity> {
     /**
      * Find an expense by its ID.
      * @param expenseId the ID of the expense
@@ -23,4 +40,211 @@ public interface ExpenseRepository extends JpaRepository<ExpenseEntity, Long> {
     List<ExpenseEntity> findByOwnerId(Long id);
 
     Optional<ExpenseEntity> findByOwnerIdAndExpenseId(Long id, String expenseId);
+
+    List<ExpenseEntity> findByOwnerIdAndExpenseIdIn(Long id, Collection<String> expenseIds);
+
+    /**
+     * Find which of the given expense IDs already exist, for idempotent replays.
+     * @param expenseIds the IDs of the expenses
+     * @return the IDs that are taken
+     */
+    @Query("select e.expenseId from ExpenseEntity e where e.expenseId in :expenseIds")
+    List<String> findExistingExpenseIds(@Param("expenseIds") Collection<String> expenseIds);
+
+    /**
+     * Read the version of an owner's expense without loading the entity.
+     * @param ownerId the id of the owner profile
+     * @param expenseId the ID of the expense
+     * @return the version, or empty if the owner has no such expense
+     */
+    @Query("select e.version from ExpenseEntity e where e.owner.id = :ownerId and e.expenseId = :expenseId")
+    Optional<Long> findVersionByOwnerIdAndExpenseId(@Param("ownerId") Long ownerId, @Param("expenseId") String expenseId);
+
+    /**
+     * Read the delete keys and rollup values of an owner's expense without loading the entity.
+     * @param ownerId the id of the owner profile
+     * @param expenseId the ID of the expense
+     * @return the snapshot, or empty if the owner has no such expense
+     */
+    @Query("select e.id as id, e.expenseId as expenseId, e.date as date, e.category as category, " +
+            "e.amount as amount, e.version as version " +
+            "from ExpenseEntity e where e.owner.id = :ownerId and e.expenseId = :expenseId")
+    Optional<ExpenseSnapshotView> findSnapshotByOwnerIdAndExpenseId(@Param("ownerId") Long ownerId, @Param("expenseId") String expenseId);
+
+    /**
+     * Lock and read the snapshots of some of an owner's expenses, for a chunked delete.
+     * @param ownerId the id of the owner profile
+     * @param expenseIds the IDs of the expenses
+     * @return the snapshots of the expenses that exist
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e.id as id, e.expenseId as expenseId, e.date as date, e.category as category, " +
+            "e.amount as amount, e.version as version " +
+            "from ExpenseEntity e where e.owner.id = :ownerId and e.expenseId in :expenseIds")
+    List<ExpenseSnapshotView> lockSnapshotsByOwnerIdAndExpenseIdIn(@Param("ownerId") Long ownerId,
+                                                                  @Param("expenseIds") Collection<String> expenseIds);
+
+    /**
+     * Lock and read the next chunk of an owner's expenses within a date range and categories.
+     * @param ownerId the id of the owner profile
+     * @param from the first date to include, or null for no lower bound
+     * @param to the last date to include, or null for no upper bound
+     * @param anyCategory true to ignore the categories
+     * @param categories the categories to include
+     * @param limit the chunk size
+     * @return the snapshots of the matching expenses, lowest id first
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e.id as id, e.expenseId as expenseId, e.date as date, e.category as category, " +
+            "e.amount as amount, e.version as version " +
+            "from ExpenseEntity e where e.owner.id = :ownerId " +
+            "and (:from is null or e.date >= :from) and (:to is null or e.date <= :to) " +
+            "and (:anyCategory = true or e.category in :categories) " +
+            "order by e.id")
+    List<ExpenseSnapshotView> lockSnapshotsByOwnerIdAndFilter(@Param("ownerId") Long ownerId,
+                                                             @Param("from") Date from,
+                                                             @Param("to") Date to,
+                                                             @Param("anyCategory") boolean anyCategory,
+                                                             @Param("categories") Collection<String> categories,
+                                                             Limit limit);
+
+    /**
+     * Delete an owner's expense if it is still at the given version.
+     * @param ownerId the id of the owner profile
+     * @param expenseId the ID of the expense
+     * @param version the version the delete is based on
+     * @return the number of deleted rows, 0 when the expense was changed or deleted meanwhile
+     */
+    @Modifying
+    @Query("delete from ExpenseEntity e where e.owner.id = :ownerId and e.expenseId = :expenseId and e.version = :version")
+    int deleteIfVersionMatches(@Param("ownerId") Long ownerId, @Param("expenseId") String expenseId, @Param("version") Long version);
+
+    /**
+     * Delete some of an owner's expenses by their primary keys.
+     * @param ownerId the id of the owner profile
+     * @param ids the primary keys of the expenses
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("delete from ExpenseEntity e where e.owner.id = :ownerId and e.id in :ids")
+    int deleteByOwnerIdAndIdIn(@Param("ownerId") Long ownerId, @Param("ids") Collection<Long> ids);
+
+    /**
+     * Overwrite the details of an owner's expense if it is still at the given version.
+     * @param ownerId the id of the owner profile
+     * @param expenseId the ID of the expense
+     * @param version the version the new details are based on
+     * @return the number of updated rows, 0 when the expense was changed or deleted meanwhile
+     */
+    @Modifying
+    @Query("update ExpenseEntity e set e.name = :name, e.note = :note, e.category = :category, e.date = :date, " +
+            "e.amount = :amount, e.updatedAt = :updatedAt, e.version = e.version + 1 " +
+            "where e.owner.id = :ownerId and e.expenseId = :expenseId and e.version = :version")
+    int updateIfVersionMatches(@Param("ownerId") Long ownerId,
+                               @Param("expenseId") String expenseId,
+                               @Param("version") Long version,
+                               @Param("name") String name,
+                               @Param("note") String note,
+                               @Param("category") String category,
+                               @Param("date") Date date,
+                               @Param("amount") BigDecimal amount,
+                               @Param("updatedAt") Timestamp updatedAt);
+
+    /**
+     * Stream all of an owner's expenses through a forward-only cursor, newest first.
+     * The stream has to be consumed and closed inside a transaction.
+     * @param ownerId the id of the owner profile
+     * @return a stream of expenses ordered by (date desc, id desc)
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select e from ExpenseEntity e where e.owner.id = :ownerId order by e.date desc, e.id desc")
+    Stream<ExpenseEntity> streamByOwnerId(@Param("ownerId") Long ownerId);
+
+    /**
+     * Full-text search over an owner's expense names and notes, best matches first.
+     * Needs the MySQL FULLTEXT index of db/expense-search-index.sql.
+     * @param ownerId the id of the owner profile
+     * @param terms the search terms in boolean mode syntax
+     * @param limit the maximum number of rows to return
+     * @param offset the number of rows to skip
+     * @return the matching expenses ordered by relevance
+     */
+    @Query(value = "select * from tbl_expenses e where e.owner_id = :ownerId " +
+            "and match(e.name, e.note) against (:terms in boolean mode) " +
+            "order by match(e.name, e.note) against (:terms in boolean mode) desc, e.id desc " +
+            "limit :limit offset :offset", nativeQuery = true)
+    List<ExpenseEntity> searchFullText(@Param("ownerId") Long ownerId,
+                                       @Param("terms") String terms,
+                                       @Param("limit") int limit,
+                                       @Param("offset") long offset);
+
+    /**
+     * Substring search over an owner's expense names and notes, newest first.
+     * Used on databases without the FULLTEXT index.
+     * @param ownerId the id of the owner profile
+     * @param pattern the lower-case LIKE pattern
+     * @param pageable the page to return
+     * @return the matching expenses ordered by (date desc, id desc)
+     */
+    @Query("select e from ExpenseEntity e where e.owner.id = :ownerId " +
+            "and (lower(e.name) like :pattern or lower(e.note) like :pattern) " +
+            "order by e.date desc, e.id desc")
+    Slice<ExpenseEntity> searchByPattern(@Param("ownerId") Long ownerId, @Param("pattern") String pattern, Pageable pageable);
+
+    /**
+     * Sum, count, min and max of an owner's expenses per category within a date range.
+     * @param ownerId the id of the owner profile
+     * @param from the first date of the range, inclusive
+     * @param to the last date of the range, inclusive
+     * @return one row per category
+     */
+    @Query("select e.category as category, sum(e.amount) as total, count(e) as count, " +
+            "min(e.amount) as minAmount, max(e.amount) as maxAmount " +
+            "from ExpenseEntity e where e.owner.id = :ownerId and e.date between :from and :to " +
+            "group by e.category order by e.category")
+    List<ExpenseAggregateView> aggregateByCategory(@Param("ownerId") Long ownerId, @Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * Sum, count, min and max of an owner's expenses per calendar month within a date range.
+     * @param ownerId the id of the owner profile
+     * @param from the first date of the range, inclusive
+     * @param to the last date of the range, inclusive
+     * @return one row per month
+     */
+    @Query("select year(e.date) as year, month(e.date) as month, sum(e.amount) as total, count(e) as count, " +
+            "min(e.amount) as minAmount, max(e.amount) as maxAmount " +
+            "from ExpenseEntity e where e.owner.id = :ownerId and e.date between :from and :to " +
+            "group by year(e.date), month(e.date) order by year(e.date), month(e.date)")
+    List<ExpenseAggregateView> aggregateByMonth(@Param("ownerId") Long ownerId, @Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * Sum, count, min and max of an owner's expenses per day within a date range.
+     * @param ownerId the id of the owner profile
+     * @param from the first date of the range, inclusive
+     * @param to the last date of the range, inclusive
+     * @return one row per day that has expenses
+     */
+    @Query("select e.date as day, sum(e.amount) as total, count(e) as count, " +
+            "min(e.amount) as minAmount, max(e.amount) as maxAmount " +
+            "from ExpenseEntity e where e.owner.id = :ownerId and e.date between :from and :to " +
+            "group by e.date order by e.date")
+    List<ExpenseAggregateView> aggregateByDay(@Param("ownerId") Long ownerId, @Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * Sum and count of all of an owner's expenses per calendar month and category.
+     * Used to verify and rebuild the expense rollups.
+     * @param ownerId the id of the owner profile
+     * @return one row per month and category
+     */
+    @Query("select year(e.date) as year, month(e.date) as month, e.category as category, " +
+            "sum(e.amount) as total, count(e) as count " +
+            "from ExpenseEntity e where e.owner.id = :ownerId " +
+            "group by year(e.date), month(e.date), e.category")
+    List<ExpenseAggregateView> aggregateByMonthAndCategory(@Param("ownerId") Long ownerId);
+
+    @Query("select distinct e.owner.id from ExpenseEntity e")
+    List<Long> findOwnerIds();
 }
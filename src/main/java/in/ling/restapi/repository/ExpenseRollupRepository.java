@@ -0,0 +1,76 @@
+package in.ling.restapi.repository;
+
+import in.ling.restapi.entity.ExpenseRollupEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Repository for the per owner, month and category expense rollups.
+ * @author Ling
+ */
+public interface ExpenseRollupRepository extends JpaRepository<ExpenseRollupEntity, Long> {
+
+    /**
+     * Adds a delta to one rollup row, creating the row if it does not exist yet.
+     * @param ownerId the id of the owner profile
+     * @param rollupMonth the first day of the month
+     * @param category the expense category
+     * @param amount the amount to add, negative for removals
+     * @param count the number of expenses to add, negative for removals
+     * @return the number of affected rows as reported by the driver
+     */
+    @Modifying
+    @Query(value = "insert into tbl_expense_rollups (owner_id, rollup_month, category, total, expense_count) " +
+            "values (:ownerId, :rollupMonth, :category, :amount, :count) " +
+            "on duplicate key update total = total + values(total), expense_count = expense_count + values(expense_count)",
+            nativeQuery = true)
+    int applyDelta(@Param("ownerId") Long ownerId,
+                   @Param("rollupMonth") Date rollupMonth,
+                   @Param("category") String category,
+                   @Param("amount") BigDecimal amount,
+                   @Param("count") long count);
+
+    /**
+     * Sets one rollup row to recomputed values, creating the row if it does not exist yet.
+     * @param ownerId the id of the owner profile
+     * @param rollupMonth the first day of the month
+     * @param category the expense category
+     * @param total the sum of the amounts
+     * @param count the number of expenses
+     * @return the number of affected rows as reported by the driver
+     */
+    @Modifying
+    @Query(value = "insert into tbl_expense_rollups (owner_id, rollup_month, category, total, expense_count) " +
+            "values (:ownerId, :rollupMonth, :category, :total, :count) " +
+            "on duplicate key update total = values(total), expense_count = values(expense_count)",
+            nativeQuery = true)
+    int setTotals(@Param("ownerId") Long ownerId,
+                  @Param("rollupMonth") Date rollupMonth,
+                  @Param("category") String category,
+                  @Param("total") BigDecimal total,
+                  @Param("count") long count);
+
+    @Modifying
+    @Query("delete from ExpenseRollupEntity r where r.owner.id = :ownerId and r.rollupMonth = :rollupMonth " +
+            "and r.category = :category")
+    int deleteRollup(@Param("ownerId") Long ownerId,
+                     @Param("rollupMonth") Date rollupMonth,
+                     @Param("category") String category);
+
+    @Modifying
+    @Query("delete from ExpenseRollupEntity r where r.owner.id = :ownerId and r.rollupMonth = :rollupMonth " +
+            "and r.category = :category and r.expenseCount = 0")
+    int deleteIfEmpty(@Param("ownerId") Long ownerId,
+                      @Param("rollupMonth") Date rollupMonth,
+                      @Param("category") String category);
+
+    List<ExpenseRollupEntity> findByOwnerIdAndRollupMonthBetweenOrderByRollupMonthAscCategoryAsc(Long ownerId, Date from, Date to);
+
+    List<ExpenseRollupEntity> findByOwnerId(Long ownerId);
+}
@@ -0,0 +1,80 @@
+package in.ling.restapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Tells whether the FULLTEXT index over tbl_expenses (name, note) exists. Hibernate cannot declare
+ * FULLTEXT indexes, and building the first one rebuilds the table and holds up every expense write
+ * meanwhile, so the application never creates it: db/expense-search-index.sql is run once per
+ * database, outside the application. The index is looked for at startup and then every
+ * index-check-interval until it is found; until then, and on databases other than MySQL,
+ * searches fall back to a pattern scan.
+ * @author Ling
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExpenseSearchIndex {
+
+    public static final String INDEX_NAME = "ftx_expenses_name_note";
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean fullTextAvailable;
+
+    private volatile boolean unsupported;
+
+    private volatile boolean reportedMissing;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${expense.search.index-check-interval:PT5M}",
+            fixedDelayString = "${expense.search.index-check-interval:PT5M}")
+    public void checkIndex() {
+        if (fullTextAvailable || unsupported) {
+            return;
+        }
+        try {
+            if (!isMySql()) {
+                unsupported = true;
+                log.info("Database is not MySQL, expense search uses pattern matching");
+                return;
+            }
+            Integer existing = jdbcTemplate.queryForObject(
+                    "select count(*) from information_schema.statistics " +
+                            "where table_schema = database() and table_name = 'tbl_expenses' and index_name = ?",
+                    Integer.class, INDEX_NAME);
+            if (existing != null && existing > 0) {
+                fullTextAvailable = true;
+                log.info("FULLTEXT index {} found, expense search uses it", INDEX_NAME);
+            } else if (!reportedMissing) {
+                reportedMissing = true;
+                log.warn("FULLTEXT index {} is missing, expense search uses pattern matching until db/expense-search-index.sql is run",
+                        INDEX_NAME);
+            }
+        } catch (RuntimeException | SQLException ex) {
+            log.warn("Could not look for FULLTEXT index {}, expense search uses pattern matching", INDEX_NAME, ex);
+        }
+    }
+
+    public boolean isFullTextAvailable() {
+        return fullTextAvailable;
+    }
+
+    private boolean isMySql() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+}
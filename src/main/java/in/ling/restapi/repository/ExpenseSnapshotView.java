@@ -0,0 +1,24 @@
+package in.ling.restapi.repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Projection of the columns an expense delete needs: the keys to delete by and the values its
+ * rollup delta is computed from. Reading it does not hydrate or manage an ExpenseEntity.
+ * @author Ling
+ */
+public interface ExpenseSnapshotView {
+
+    Long getId();
+
+    String getExpenseId();
+
+    Date getDate();
+
+    String getCategory();
+
+    BigDecimal getAmount();
+
+    Long getVersion();
+}
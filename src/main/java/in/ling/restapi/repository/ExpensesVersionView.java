@@ -0,0 +1,14 @@
+package in.ling.restapi.repository;
+
+import java.sql.Timestamp;
+
+/**
+ * Projection of the per-owner expense collection marker kept on tbl_profile.
+ * @author Ling
+ */
+public interface ExpensesVersionView {
+
+    Long getVersion();
+
+    Timestamp getModifiedAt();
+}
@@ -2,7 +2,13 @@ package in.ling.restapi.repository;
 
 import in.ling.restapi.entity.ProfileEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProfileRepository extends JpaRepository<ProfileEntity, Long> {
@@ -10,4 +16,43 @@ public interface ProfileRepository extends JpaRepository<ProfileEntity, Long> {
 
     Boolean existsByEmail(String email);
 
+    List<ProfileEntity> findByEmailIn(Collection<String> emails);
+
+    /**
+     * Find which of the given emails already belong to a profile, for bulk imports.
+     * @param emails the emails
+     * @return the emails that are taken, as stored
+     */
+    @Query("select p.email from ProfileEntity p where p.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Read the owner's expense collection version without loading the profile.
+     * @param id the id of the owner profile
+     * @return the version and the time of the last expense write
+     */
+    @Query("select coalesce(p.expensesVersion, 0) as version, p.expensesModifiedAt as modifiedAt from ProfileEntity p where p.id = :id")
+    Optional<ExpensesVersionView> findExpensesVersionById(@Param("id") Long id);
+
+    /**
+     * Bump the owner's expense collection version. Expense writers call it before their first
+     * expense or rollup write, so it also takes the owner's row lock in a fixed order.
+     * @param id the id of the owner profile
+     * @param modifiedAt the time of the write
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query(value = "update tbl_profile set expenses_version = coalesce(expenses_version, 0) + 1, " +
+            "expenses_modified_at = :modifiedAt where id = :id", nativeQuery = true)
+    int markExpensesChanged(@Param("id") Long id, @Param("modifiedAt") Timestamp modifiedAt);
+
+    /**
+     * Lock the profile row until the end of the transaction, which keeps the owner's expense
+     * writers out, since each of them starts with markExpensesChanged.
+     * @param id the id of the owner profile
+     * @return the id, empty when the profile does not exist
+     */
+    @Query(value = "select id from tbl_profile where id = :id for update", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
 }
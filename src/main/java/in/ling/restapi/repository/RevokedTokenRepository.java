@@ -0,0 +1,23 @@
+package in.ling.restapi.repository;
+
+import in.ling.restapi.entity.RevokedTokenEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedTokenEntity, Long> {
+
+    List<RevokedTokenEntity> findByExpiresAtAfter(Timestamp now);
+
+    List<RevokedTokenEntity> findByRevokedAtGreaterThanEqualAndExpiresAtAfter(Timestamp since, Timestamp now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedTokenEntity t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Timestamp now);
+}
@@ -0,0 +1,40 @@
+package in.ling.restapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.ling.restapi.repository.ProfileRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived, bounded cache of whether a profile still exists. Tokens carry the profile id,
+ * so this is the only check left per request; a deleted profile loses access within the TTL.
+ * @author Ling
+ */
+@Component
+public class ActiveProfileCache {
+
+    private final ProfileRepository profileRepository;
+
+    private final Cache<Long, Boolean> activeProfiles;
+
+    public ActiveProfileCache(ProfileRepository profileRepository,
+                              @Value("${security.active-profile-cache.ttl:30s}") Duration ttl,
+                              @Value("${security.active-profile-cache.max-size:10000}") long maxSize) {
+        this.profileRepository = profileRepository;
+        this.activeProfiles = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public boolean isActive(Long id) {
+        return activeProfiles.get(id, profileRepository::existsById);
+    }
+
+    public void evict(Long id) {
+        activeProfiles.invalidate(id);
+    }
+}
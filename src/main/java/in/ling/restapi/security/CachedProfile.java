@@ -0,0 +1,29 @@
+package in.ling.restapi.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable copy of the profile columns needed for authentication, as kept in ProfileCache.
+ * Principals are built from it per request, so erasing their credentials never touches the cache.
+ * @author Ling
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class CachedProfile {
+
+    private final Long id;
+
+    private final String profileId;
+
+    private final String email;
+
+    @ToString.Exclude
+    private final String password;
+
+    public ProfilePrincipal toPrincipal() {
+        return new ProfilePrincipal(id, profileId, email, password);
+    }
+}
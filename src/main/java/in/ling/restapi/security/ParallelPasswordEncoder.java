@@ -0,0 +1,63 @@
+package in.ling.restapi.security;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Hashes many passwords at once on a fork-join pool of security.password.hash-parallelism
+ * workers, one per core by default. The pool is shared by all callers, so concurrent imports
+ * queue up behind each other instead of adding threads. Uses the application's
+ * PasswordEncoder, so the hashes have the configured BCrypt strength.
+ * @author Ling
+ */
+@Component
+public class ParallelPasswordEncoder implements DisposableBean {
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final ForkJoinPool pool;
+
+    public ParallelPasswordEncoder(PasswordEncoder passwordEncoder,
+                                   @Value("${security.password.hash-parallelism:0}") int parallelism) {
+        this.passwordEncoder = passwordEncoder;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Hashes the given passwords in parallel.
+     * @param rawPasswords the raw passwords
+     * @return the hashes, in the same order
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        List<Callable<String>> tasks = new ArrayList<>(rawPasswords.size());
+        for (String rawPassword : rawPasswords) {
+            tasks.add(() -> passwordEncoder.encode(rawPassword));
+        }
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        try {
+            for (Future<String> hash : pool.invokeAll(tasks)) {
+                hashes.add(hash.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Password hashing failed", ex.getCause());
+        }
+        return hashes;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+}
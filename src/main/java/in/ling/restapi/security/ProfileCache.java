@@ -0,0 +1,119 @@
+package in.ling.restapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.ling.restapi.entity.ProfileEntity;
+import in.ling.restapi.repository.ProfileRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded cache of profiles by email and by id, in front of the lookups done on every login
+ * and registration. Only existing profiles are cached, so a new registration is never hidden.
+ * Entries are evicted by ProfileEntityListener whenever a profile is written, and expire after
+ * the TTL in case another instance changed the row. Hit, miss and eviction counts are published
+ * as the cache.* meters tagged cache=profilesByEmail and cache=profilesById.
+ * Disabling it sends every lookup to the database, for comparison.
+ * @author Ling
+ */
+@Component
+public class ProfileCache {
+
+    private final ProfileRepository profileRepository;
+
+    private final Cache<String, CachedProfile> profilesByEmail;
+
+    private final Cache<Long, CachedProfile> profilesById;
+
+    public ProfileCache(ProfileRepository profileRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${security.profile-cache.enabled:true}") boolean enabled,
+                        @Value("${security.profile-cache.ttl:5m}") Duration ttl,
+                        @Value("${security.profile-cache.max-size:10000}") long maxSize) {
+        this.profileRepository = profileRepository;
+        this.profilesByEmail = enabled ? CaffeineCacheMetrics.monitor(meterRegistry, newCache(ttl, maxSize), "profilesByEmail") : null;
+        this.profilesById = enabled ? CaffeineCacheMetrics.monitor(meterRegistry, newCache(ttl, maxSize), "profilesById") : null;
+    }
+
+    public Optional<CachedProfile> findByEmail(String email) {
+        if (profilesByEmail == null) {
+            return profileRepository.findByEmail(email).map(ProfileCache::copyOf);
+        }
+        return Optional.ofNullable(profilesByEmail.get(email, key -> profileRepository.findByEmail(key)
+                .map(this::cacheById)
+                .orElse(null)));
+    }
+
+    public Optional<CachedProfile> findById(Long id) {
+        if (profilesById == null) {
+            return profileRepository.findById(id).map(ProfileCache::copyOf);
+        }
+        return Optional.ofNullable(profilesById.get(id, key -> profileRepository.findById(key)
+                .map(this::cacheByEmail)
+                .orElse(null)));
+    }
+
+    public boolean existsByEmail(String email) {
+        if (profilesByEmail != null && profilesByEmail.getIfPresent(email) != null) {
+            return true;
+        }
+        return profileRepository.existsByEmail(email);
+    }
+
+    /**
+     * Drops a profile under its id, under the email it was cached with and under the given email,
+     * which differs from the cached one when the email was changed.
+     * @param id the id of the profile
+     * @param email the current email of the profile
+     */
+    public void evict(Long id, String email) {
+        if (profilesById == null) {
+            return;
+        }
+        // asMap() lookups do not count as hits or misses
+        if (id != null) {
+            CachedProfile cached = profilesById.asMap().get(id);
+            if (cached != null) {
+                profilesByEmail.invalidate(cached.getEmail());
+            }
+            profilesById.invalidate(id);
+        }
+        if (email != null) {
+            CachedProfile cached = profilesByEmail.asMap().get(email);
+            if (cached != null) {
+                profilesById.invalidate(cached.getId());
+            }
+            profilesByEmail.invalidate(email);
+        }
+    }
+
+    private CachedProfile cacheById(ProfileEntity profileEntity) {
+        CachedProfile profile = copyOf(profileEntity);
+        profilesById.put(profile.getId(), profile);
+        return profile;
+    }
+
+    private CachedProfile cacheByEmail(ProfileEntity profileEntity) {
+        CachedProfile profile = copyOf(profileEntity);
+        profilesByEmail.put(profile.getEmail(), profile);
+        return profile;
+    }
+
+    private static CachedProfile copyOf(ProfileEntity profileEntity) {
+        return new CachedProfile(profileEntity.getId(), profileEntity.getProfileId(),
+                profileEntity.getEmail(), profileEntity.getPassword());
+    }
+
+    private static <K> Cache<K, CachedProfile> newCache(Duration ttl, long maxSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package in.ling.restapi.security;
+
+import in.ling.restapi.entity.ProfileEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps ProfileCache and ActiveProfileCache in step with writes through ProfileEntity.
+ * The entries are dropped at flush and once more after commit, so a lookup running between
+ * the two cannot leave the uncommitted old row in the cache.
+ * @author Ling
+ */
+@Component
+@RequiredArgsConstructor
+public class ProfileEntityListener {
+
+    // looked up on use: the caches depend on the repositories, which depend on this listener
+    private final ObjectProvider<ProfileCache> profileCache;
+
+    private final ObjectProvider<ActiveProfileCache> activeProfileCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void profileChanged(ProfileEntity profileEntity) {
+        Long id = profileEntity.getId();
+        String email = profileEntity.getEmail();
+        evict(id, email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id, email);
+                }
+            });
+        }
+    }
+
+    private void evict(Long id, String email) {
+        profileCache.getObject().evict(id, email);
+        if (id != null) {
+            activeProfileCache.getObject().evict(id);
+        }
+    }
+}
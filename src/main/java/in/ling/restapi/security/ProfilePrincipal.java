@@ -0,0 +1,48 @@
+package in.ling.restapi.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated profile kept in the SecurityContext. It carries the numeric id and the
+ * public profileId so that services can scope their queries without loading the profile.
+ * @author Ling
+ */
+@Getter
+@AllArgsConstructor
+public class ProfilePrincipal implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+
+    private final String profileId;
+
+    private final String email;
+
+    private String password;
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public String toString() {
+        return "ProfilePrincipal(id=" + id + ", profileId=" + profileId + ", email=" + email + ")";
+    }
+}
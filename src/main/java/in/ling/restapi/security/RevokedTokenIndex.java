@@ -0,0 +1,73 @@
+package in.ling.restapi.security;
+
+import in.ling.restapi.util.BloomFilter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory set of revoked token digests with their expiry. Lookups first go through a
+ * Bloom filter, so the common not-revoked case never touches the map.
+ * @author Ling
+ */
+public class RevokedTokenIndex {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final long expectedInsertions;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    // writers share the read lock; only rebuilding the filter takes the write lock
+    private final ReadWriteLock filterLock = new ReentrantReadWriteLock();
+
+    private volatile BloomFilter bloomFilter;
+
+    public RevokedTokenIndex(long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+        this.bloomFilter = new BloomFilter(expectedInsertions, FALSE_POSITIVE_RATE);
+    }
+
+    public void revoke(String digest, long expiresAtMillis) {
+        filterLock.readLock().lock();
+        try {
+            revoked.merge(digest, expiresAtMillis, Math::max);
+            bloomFilter.put(digest);
+        } finally {
+            filterLock.readLock().unlock();
+        }
+    }
+
+    public boolean isRevoked(String digest, long nowMillis) {
+        if (!bloomFilter.mightContain(digest)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(digest);
+        return expiresAt != null && expiresAt > nowMillis;
+    }
+
+    /**
+     * Drops expired digests and rebuilds the Bloom filter, which cannot forget entries by itself.
+     * @param nowMillis the current time
+     * @return the number of digests removed
+     */
+    public int evictExpired(long nowMillis) {
+        filterLock.writeLock().lock();
+        try {
+            int before = revoked.size();
+            revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, 2L * revoked.size()), FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(rebuilt::put);
+            bloomFilter = rebuilt;
+            return before - revoked.size();
+        } finally {
+            filterLock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+}
@@ -0,0 +1,34 @@
+package in.ling.restapi.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt encoder with a configurable cost. BCryptPasswordEncoder only asks for an upgrade of
+ * hashes weaker than its strength; this one asks for any other cost, so that lowering the
+ * strength to win back login throughput is applied on the next login as well. The rehash is
+ * done by DaoAuthenticationProvider through CustomUserDetailsService.updatePassword.
+ * @author Ling
+ */
+public class TunableBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final int strength;
+
+    public TunableBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+}
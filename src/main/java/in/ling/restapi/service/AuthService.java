@@ -2,6 +2,9 @@ package in.ling.restapi.service;
 
 import in.ling.restapi.entity.ProfileEntity;
 import in.ling.restapi.repository.ProfileRepository;
+import in.ling.restapi.security.CachedProfile;
+import in.ling.restapi.security.ProfileCache;
+import in.ling.restapi.security.ProfilePrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -14,6 +17,7 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class AuthService {
     private final ProfileRepository profileRepository;
+    private final ProfileCache profileCache;
 
     public ProfileEntity getLoggedInProfile() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -21,4 +25,28 @@ public class AuthService {
         return profileRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Profile not found for the email: " + email));
     }
+
+    /**
+     * Returns the id of the logged in profile, read from the principal without a database lookup.
+     * @return the profile id
+     */
+    public Long getLoggedInProfileId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof ProfilePrincipal principal) {
+            return principal.getId();
+        }
+        final String email = authentication.getName();
+        return profileCache.findByEmail(email)
+                .map(CachedProfile::getId)
+                .orElseThrow(() -> new UsernameNotFoundException("Profile not found for the email: " + email));
+    }
+
+    /**
+     * Returns an uninitialized reference to the logged in profile, to be used as an association
+     * on new entities without loading the profile row.
+     * @return the profile reference
+     */
+    public ProfileEntity getLoggedInProfileReference() {
+        return profileRepository.getReferenceById(getLoggedInProfileId());
+    }
 }
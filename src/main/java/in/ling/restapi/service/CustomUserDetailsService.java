@@ -2,29 +2,50 @@ package in.ling.restapi.service;
 
 import in.ling.restapi.entity.ProfileEntity;
 import in.ling.restapi.repository.ProfileRepository;
+import in.ling.restapi.security.CachedProfile;
+import in.ling.restapi.security.ProfileCache;
+import in.ling.restapi.security.ProfilePrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-
-import java.util.ArrayList;
-import java.util.Collections;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private final ProfileCache profileCache;
 
     private final ProfileRepository profileRepository;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        ProfileEntity profile = profileRepository.findByEmail(email)
+        CachedProfile profile = profileCache.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Profile not found for the email" + email));
-        log.info("Inside loadUserByUsername()::: printing the profile details: {}", profile);
-        return new User(profile.getEmail(), profile.getPassword(), new ArrayList<>());
+        log.debug("Inside loadUserByUsername()::: printing the profile details: {}", profile);
+        return profile.toPrincipal();
+    }
+
+    /**
+     * Stores a password that DaoAuthenticationProvider rehashed after a successful login, because
+     * the stored hash had another cost than security.password.bcrypt-strength. Saving the profile
+     * evicts it from ProfileCache through ProfileEntityListener.
+     * @param user the authenticated profile
+     * @param newPassword the new hash
+     * @return the profile with the new hash
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        ProfileEntity profile = profileRepository.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Profile not found for the email" + user.getUsername()));
+        profile.setPassword(newPassword);
+        log.info("Rehashed the password of profile {}", profile.getProfileId());
+        return new ProfilePrincipal(profile.getId(), profile.getProfileId(), profile.getEmail(), newPassword);
     }
 }
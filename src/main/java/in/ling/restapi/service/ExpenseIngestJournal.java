@@ -0,0 +1,319 @@
+package in.ling.restapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.ling.restapi.dto.ExpenseIngestRecord;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of accepted expenses. Every record is one JSON line carrying a sequence
+ * number; a separate checkpoint file holds the highest sequence known to be in the database.
+ * After a crash the records above the checkpoint are replayed. The journal is split into
+ * segments named after their first sequence: appends go to the newest one, which is rolled over
+ * once it reaches the segment size, and older segments are deleted as soon as the checkpoint has
+ * passed their last record. The newest segment is truncated whenever everything appended has
+ * been checkpointed, so the journal stays small even when the writer is never fully idle; it then
+ * keeps its name, so a segment's name is a lower bound of its first sequence, which is all that
+ * deleting segments relies on.
+ * <p>
+ * Appending and forcing to disk are separate steps, so that concurrent appenders share a force
+ * (group commit): whoever forces first covers every record written before it, and the others
+ * find their sequence already durable. Throughput with fsync is then no longer capped at one
+ * record per disk flush.
+ * <p>
+ * A lock file keeps a second process from using the same directory.
+ * @author Ling
+ */
+@Slf4j
+public class ExpenseIngestJournal implements AutoCloseable {
+
+    // the single journal file of earlier versions, replayed and deleted like a full segment
+    private static final String LEGACY_JOURNAL_FILE = "expenses.journal";
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("expenses-(\\d+)\\.journal");
+
+    private static final String CHECKPOINT_FILE = "expenses.checkpoint";
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean fsync;
+
+    private final long segmentSize;
+
+    private final Path directory;
+
+    private final Path checkpointFile;
+
+    private final FileChannel lockChannel;
+
+    private final FileLock lock;
+
+    // full segments by first sequence, guarded by appendLock
+    private final TreeMap<Long, Path> fullSegments = new TreeMap<>();
+
+    private FileChannel journal;
+
+    private long journalFirstSequence;
+
+    // not synchronized: request threads may be virtual threads and must not pin their carrier
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    // one force at a time; appenders waiting here are usually covered by the force in progress
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    private volatile long durable;
+
+    private final List<ExpenseIngestRecord> pending = new ArrayList<>();
+
+    private long lastAppended;
+
+    private volatile long checkpoint;
+
+    /**
+     * Opens the journal in the directory and reads the records that were accepted but not
+     * checkpointed before the last shutdown. A torn last line from a crash in the middle of an
+     * append is cut off; that request never got its 202.
+     * @param directory the journal directory, created if missing
+     * @param objectMapper the mapper for the JSON lines
+     * @param fsync true to force every append to disk before it is acknowledged
+     * @param segmentSize the size in bytes after which appends continue in a new segment
+     */
+    public ExpenseIngestJournal(Path directory, ObjectMapper objectMapper, boolean fsync, long segmentSize) throws IOException {
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+        this.segmentSize = segmentSize;
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Ingest journal " + directory + " is used by another process");
+        }
+        this.checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        this.checkpoint = Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile).trim()) : 0;
+        this.lastAppended = checkpoint;
+
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        Path legacyJournal = directory.resolve(LEGACY_JOURNAL_FILE);
+        if (Files.exists(legacyJournal)) {
+            segments.put(0L, legacyJournal);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        long validLength = 0;
+        for (Path segment : segments.values()) {
+            validLength = read(segment);
+        }
+
+        Map.Entry<Long, Path> newest = segments.lastEntry();
+        if (newest != null && newest.getValue() != legacyJournal) {
+            segments.remove(newest.getKey());
+            openSegment(newest.getKey(), newest.getValue());
+            journal.truncate(validLength);
+            journal.position(validLength);
+        } else {
+            openSegment(lastAppended + 1, null);
+        }
+        fullSegments.putAll(segments);
+        deleteSegments(checkpoint);
+        // whatever was read back is already on disk
+        durable = lastAppended;
+    }
+
+    /**
+     * @return the records found on open that still have to be written, in sequence order
+     */
+    public List<ExpenseIngestRecord> getPending() {
+        return pending;
+    }
+
+    /**
+     * Assigns the next sequence number to the record and writes it to the journal. The record is
+     * only durable once awaitDurable returns for its sequence.
+     * @param record the accepted expense
+     */
+    public void append(ExpenseIngestRecord record) {
+        appendLock.lock();
+        try {
+            record.setSequence(lastAppended + 1);
+            ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                journal.write(line);
+            }
+            lastAppended = record.getSequence();
+            if (journal.position() >= segmentSize) {
+                // a full segment is forced before it is closed, a force in progress on it may then fail
+                if (fsync) {
+                    journal.force(false);
+                }
+                journal.close();
+                fullSegments.put(journalFirstSequence, segmentPath(journalFirstSequence));
+                openSegment(lastAppended + 1, null);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not append to the ingest journal", ex);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record with the sequence is on disk, forcing the journal unless another
+     * appender's force already covered it. Returns at once when fsync is off.
+     * @param sequence the sequence assigned by append
+     */
+    public void awaitDurable(long sequence) {
+        if (!fsync || durable >= sequence) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (durable >= sequence) {
+                return;
+            }
+            FileChannel segment;
+            long covered;
+            appendLock.lock();
+            try {
+                segment = journal;
+                covered = lastAppended;
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                segment.force(false);
+            } catch (ClosedChannelException ex) {
+                // the segment rolled over meanwhile and was forced before it was closed
+            }
+            durable = covered;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not force the ingest journal to disk", ex);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Records that every entry up to the sequence is in the database, deletes the full segments
+     * it covers and truncates the newest segment when nothing newer has been appended.
+     * @param sequence the highest persisted sequence
+     */
+    public void checkpoint(long sequence) {
+        try {
+            Path temporary = checkpointFile.resolveSibling(CHECKPOINT_FILE + ".tmp");
+            Files.writeString(temporary, Long.toString(sequence));
+            Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpoint = sequence;
+            appendLock.lock();
+            try {
+                if (lastAppended <= sequence) {
+                    journal.truncate(0);
+                }
+            } finally {
+                appendLock.unlock();
+            }
+            deleteSegments(sequence);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not checkpoint the ingest journal", ex);
+        }
+    }
+
+    /**
+     * Reads the records of one segment, collecting those above the checkpoint.
+     * @param segment the segment file
+     * @return the length of the segment up to its last complete record
+     */
+    private long read(Path segment) throws IOException {
+        long validLength = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ExpenseIngestRecord record;
+                try {
+                    record = objectMapper.readValue(line, ExpenseIngestRecord.class);
+                } catch (IOException ex) {
+                    log.warn("Dropping unreadable ingest journal entry after sequence {}", lastAppended);
+                    break;
+                }
+                validLength += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                lastAppended = Math.max(lastAppended, record.getSequence());
+                if (record.getSequence() > checkpoint) {
+                    pending.add(record);
+                }
+            }
+        }
+        return validLength;
+    }
+
+    private void openSegment(long firstSequence, Path file) throws IOException {
+        journal = FileChannel.open(file == null ? segmentPath(firstSequence) : file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        journalFirstSequence = firstSequence;
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve("expenses-" + firstSequence + ".journal");
+    }
+
+    /**
+     * Deletes the full segments whose records are all at or below the sequence. A segment ends
+     * right before the first sequence of the segment after it.
+     * @param sequence the highest persisted sequence
+     */
+    private void deleteSegments(long sequence) throws IOException {
+        List<Path> deletable = new ArrayList<>();
+        appendLock.lock();
+        try {
+            Iterator<Map.Entry<Long, Path>> segments = fullSegments.entrySet().iterator();
+            while (segments.hasNext()) {
+                Map.Entry<Long, Path> segment = segments.next();
+                Long nextFirstSequence = fullSegments.higherKey(segment.getKey());
+                long lastSequence = (nextFirstSequence == null ? journalFirstSequence : nextFirstSequence) - 1;
+                if (lastSequence > sequence) {
+                    break;
+                }
+                deletable.add(segment.getValue());
+                segments.remove();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        for (Path segment : deletable) {
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+        lock.release();
+        lockChannel.close();
+    }
+}
@@ -0,0 +1,359 @@
+package in.ling.restapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.ling.restapi.dto.ExpenseDTO;
+import in.ling.restapi.dto.ExpenseIngestRecord;
+import in.ling.restapi.dto.ExpenseIngestStatus;
+import in.ling.restapi.dto.ExpenseIngestStatusDTO;
+import in.ling.restapi.entity.ExpenseEntity;
+import in.ling.restapi.exceptions.ResourceNotFoundException;
+import in.ling.restapi.exceptions.ServiceUnavailableException;
+import in.ling.restapi.repository.ExpenseRepository;
+import in.ling.restapi.repository.ProfileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind ingestion of new expenses. An accepted expense gets its expenseId up front, is
+ * appended to the journal and queued; a single writer thread drains the queue and inserts up to
+ * batch-size expenses per transaction with JDBC batching. The journal is checkpointed after every
+ * committed batch, so after a crash the uncommitted tail is replayed on the next start. Replays are
+ * idempotent because expenseIds that already exist are skipped.
+ * <p>
+ * At most queue-capacity expenses wait at a time; beyond that new ones are refused with a 503
+ * instead of growing the journal without bound.
+ * @author Ling
+ */
+@Service
+@Slf4j
+public class ExpenseIngestService implements SmartLifecycle {
+
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final ExpenseRepository expenseRepository;
+
+    private final ProfileRepository profileRepository;
+
+    private final ExpenseRollupService expenseRollupService;
+
+    private final AuthService authService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+
+    private final int queueCapacity;
+
+    private final int batchSize;
+
+    private final Path journalDirectory;
+
+    private final boolean fsync;
+
+    private final long journalSegmentSize;
+
+    private final Duration retryAfter;
+
+    private final Cache<String, IngestState> states;
+
+    private final LinkedBlockingQueue<ExpenseIngestRecord> queue = new LinkedBlockingQueue<>();
+
+    // sequence numbers must reach the queue in journal order, otherwise a checkpoint could skip a record
+    private final ReentrantLock acceptLock = new ReentrantLock();
+
+    private Semaphore capacity;
+
+    private ExpenseIngestJournal journal;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    public ExpenseIngestService(ExpenseRepository expenseRepository,
+                                ProfileRepository profileRepository,
+                                ExpenseRollupService expenseRollupService,
+                                AuthService authService,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${expense.ingest.enabled:false}") boolean enabled,
+                                @Value("${expense.ingest.queue-capacity:10000}") int queueCapacity,
+                                @Value("${expense.ingest.batch-size:500}") int batchSize,
+                                @Value("${expense.ingest.journal-dir:ingest-journal}") Path journalDirectory,
+                                @Value("${expense.ingest.fsync:true}") boolean fsync,
+                                @Value("${expense.ingest.journal-segment-size:64MB}") DataSize journalSegmentSize,
+                                @Value("${expense.ingest.retry-after:5s}") Duration retryAfter,
+                                @Value("${expense.ingest.status-ttl:1h}") Duration statusTtl) {
+        this.expenseRepository = expenseRepository;
+        this.profileRepository = profileRepository;
+        this.expenseRollupService = expenseRollupService;
+        this.authService = authService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.journalDirectory = journalDirectory;
+        this.fsync = fsync;
+        this.journalSegmentSize = journalSegmentSize.toBytes();
+        this.retryAfter = retryAfter;
+        this.states = Caffeine.newBuilder()
+                .expireAfterWrite(statusTtl)
+                .maximumSize(Math.max(100_000, queueCapacity * 10L))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accepts a new expense of the logged in profile for asynchronous insertion.
+     * The expense is durable in the journal when this method returns.
+     * @param expenseDTO the validated expense details
+     * @return the PENDING status carrying the assigned expenseId
+     * @throws ServiceUnavailableException when the queue is full or the service is stopping
+     */
+    public ExpenseIngestStatusDTO accept(ExpenseDTO expenseDTO) {
+        Long ownerId = authService.getLoggedInProfileId();
+        if (!running || !capacity.tryAcquire()) {
+            throw new ServiceUnavailableException("Expense ingestion queue is full, please retry later", retryAfter);
+        }
+        ExpenseIngestRecord record = ExpenseIngestRecord.builder()
+                .ownerId(ownerId)
+                .expenseId(UUID.randomUUID().toString())
+                .name(expenseDTO.getName())
+                .note(expenseDTO.getNote())
+                .category(expenseDTO.getCategory())
+                .date(expenseDTO.getDate())
+                .amount(expenseDTO.getAmount())
+                .build();
+        acceptLock.lock();
+        try {
+            journal.append(record);
+            states.put(record.getExpenseId(), new IngestState(ownerId, ExpenseIngestStatus.PENDING, null));
+            queue.add(record);
+        } catch (RuntimeException ex) {
+            capacity.release();
+            throw ex;
+        } finally {
+            acceptLock.unlock();
+        }
+        // outside the lock, so that concurrent requests share one force; the writer may already be
+        // inserting the record, which is harmless since the 202 is only sent once it is durable
+        journal.awaitDurable(record.getSequence());
+        return toStatusDTO(record.getExpenseId(), ExpenseIngestStatus.PENDING, null);
+    }
+
+    /**
+     * Looks up the ingestion status of one of the logged in profile's expenses. Statuses are kept
+     * in memory for status-ttl; an older or restarted expense is PERSISTED if it is in the database.
+     * @param expenseId the expenseId returned by accept
+     * @return the current status
+     */
+    public ExpenseIngestStatusDTO getStatus(String expenseId) {
+        Long ownerId = authService.getLoggedInProfileId();
+        IngestState state = states.getIfPresent(expenseId);
+        if (state != null && state.ownerId().equals(ownerId)) {
+            return toStatusDTO(expenseId, state.status(), state.message());
+        }
+        if (expenseRepository.findVersionByOwnerIdAndExpenseId(ownerId, expenseId).isPresent()) {
+            return toStatusDTO(expenseId, ExpenseIngestStatus.PERSISTED, null);
+        }
+        throw new ResourceNotFoundException("Ingested expense not found for the expense id" + expenseId);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journal = new ExpenseIngestJournal(journalDirectory, objectMapper, fsync, journalSegmentSize);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open the expense ingest journal in " + journalDirectory, ex);
+        }
+        List<ExpenseIngestRecord> pending = journal.getPending();
+        pending.forEach(record -> states.put(record.getExpenseId(), new IngestState(record.getOwnerId(), ExpenseIngestStatus.PENDING, null)));
+        queue.addAll(pending);
+        // recovered records count against the capacity, even beyond it
+        capacity = new Semaphore(queueCapacity - pending.size());
+        if (!pending.isEmpty()) {
+            log.info("Recovered {} expenses from the ingest journal", pending.size());
+        }
+        running = true;
+        writer = new Thread(this::drain, "expense-ingest-writer");
+        writer.start();
+    }
+
+    /**
+     * Stops accepting, gives the writer some time to drain the queue and closes the journal.
+     * Whatever is left stays in the journal and is written after the next start.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(Duration.ofSeconds(30).toMillis());
+            if (writer.isAlive()) {
+                writer.interrupt();
+                writer.join();
+            }
+            journal.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            log.warn("Could not close the expense ingest journal", ex);
+        }
+        if (!queue.isEmpty()) {
+            log.info("{} expenses left in the ingest journal for the next start", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // start before and stop after the web server (phase DEFAULT_PHASE - 2048), so that no request sees a stopped service;
+    // sharing its phase would leave the order between the two undefined
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2049;
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            List<ExpenseIngestRecord> batch = new ArrayList<>(batchSize);
+            try {
+                ExpenseIngestRecord first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            if (!persist(batch)) {
+                return;
+            }
+            journal.checkpoint(batch.get(batch.size() - 1).getSequence());
+            capacity.release(batch.size());
+        }
+    }
+
+    /**
+     * Inserts a batch, retrying while the database is unreachable. When the batch is rejected for
+     * another reason every expense is retried in its own transaction, so one bad row only fails itself.
+     * @return false when the service stopped before the batch could be written
+     */
+    private boolean persist(List<ExpenseIngestRecord> batch) {
+        Duration backoff = Duration.ofSeconds(1);
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(batch));
+                batch.forEach(record -> markState(record, ExpenseIngestStatus.PERSISTED, null));
+                return true;
+            } catch (TransientDataAccessException | DataAccessResourceFailureException | CannotCreateTransactionException ex) {
+                log.warn("Could not write {} ingested expenses, retrying in {}: {}", batch.size(), backoff, ex.getMessage());
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return false;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+            } catch (RuntimeException ex) {
+                if (batch.size() == 1) {
+                    log.error("Dropping ingested expense {}", batch.get(0).getExpenseId(), ex);
+                    markState(batch.get(0), ExpenseIngestStatus.FAILED, "Expense could not be saved");
+                    return true;
+                }
+                log.warn("Batch of {} ingested expenses failed, writing them one by one: {}", batch.size(), ex.getMessage());
+                for (ExpenseIngestRecord record : batch) {
+                    if (!persist(List.of(record))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    private void insert(List<ExpenseIngestRecord> batch) {
+        Set<String> existing = new HashSet<>(expenseRepository.findExistingExpenseIds(
+                batch.stream().map(ExpenseIngestRecord::getExpenseId).collect(Collectors.toList())));
+        Map<Long, ExpenseRollupService.Deltas> deltas = new LinkedHashMap<>();
+        List<ExpenseEntity> entities = new ArrayList<>(batch.size());
+        for (ExpenseIngestRecord record : batch) {
+            if (existing.contains(record.getExpenseId())) {
+                continue;
+            }
+            ExpenseEntity expenseEntity = ExpenseEntity.builder()
+                    .expenseId(record.getExpenseId())
+                    .name(record.getName())
+                    .note(record.getNote())
+                    .category(record.getCategory())
+                    .date(record.getDate())
+                    .amount(record.getAmount())
+                    .owner(profileRepository.getReferenceById(record.getOwnerId()))
+                    .build();
+            entities.add(expenseEntity);
+            deltas.computeIfAbsent(record.getOwnerId(), expenseRollupService::newDeltas).added(expenseEntity);
+        }
+        // profile rows are locked first and in id order, like every other expense writer
+        Timestamp now = Timestamp.from(Instant.now());
+        deltas.keySet().stream().sorted().forEach(ownerId -> profileRepository.markExpensesChanged(ownerId, now));
+        expenseRepository.saveAll(entities);
+        expenseRepository.flush();
+        deltas.values().forEach(expenseRollupService::apply);
+        log.debug("Wrote {} ingested expenses, {} were already present", entities.size(), batch.size() - entities.size());
+    }
+
+    private void markState(ExpenseIngestRecord record, ExpenseIngestStatus status, String message) {
+        states.put(record.getExpenseId(), new IngestState(record.getOwnerId(), status, message));
+    }
+
+    private static ExpenseIngestStatusDTO toStatusDTO(String expenseId, ExpenseIngestStatus status, String message) {
+        return ExpenseIngestStatusDTO.builder()
+                .expenseId(expenseId)
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+    private record IngestState(Long ownerId, ExpenseIngestStatus status, String message) {
+    }
+}
@@ -0,0 +1,185 @@
+package in.ling.restapi.service;
+
+import in.ling.restapi.entity.ExpenseEntity;
+import in.ling.restapi.entity.ExpenseRollupEntity;
+import in.ling.restapi.repository.ExpenseAggregateView;
+import in.ling.restapi.repository.ExpenseRepository;
+import in.ling.restapi.repository.ExpenseRollupRepository;
+import in.ling.restapi.repository.ProfileRepository;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains tbl_expense_rollups, the per owner, month and category sum and count of expenses.
+ * Every expense write applies its delta inside the caller's transaction, so monthly summaries
+ * can be read in O(months) instead of O(expenses).
+ * @author Ling
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ExpenseRollupService {
+
+    private final ExpenseRollupRepository expenseRollupRepository;
+
+    private final ExpenseRepository expenseRepository;
+
+    private final ProfileRepository profileRepository;
+
+    public Deltas newDeltas(Long ownerId) {
+        return new Deltas(ownerId);
+    }
+
+    /**
+     * Applies the accumulated deltas, one upsert per touched rollup row, and removes rows
+     * that no longer count any expense.
+     * @param deltas the deltas of one owner
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Deltas deltas) {
+        deltas.changes.forEach((key, change) -> {
+            if (change.count == 0 && change.amount.signum() == 0) {
+                return;
+            }
+            expenseRollupRepository.applyDelta(deltas.ownerId, key.getRollupMonth(), key.getCategory(), change.amount, change.count);
+            if (change.count < 0) {
+                expenseRollupRepository.deleteIfEmpty(deltas.ownerId, key.getRollupMonth(), key.getCategory());
+            }
+        });
+    }
+
+    /**
+     * Compares an owner's rollups with a fresh GROUP BY over tbl_expenses and optionally repairs them.
+     * The owner's profile row is locked first, so no expense write of the owner can run between the
+     * two reads and the repair. Repairs write the recomputed values rather than corrections, so
+     * running the verification twice, for example on two nodes at once, leaves the same result.
+     * @param ownerId the id of the owner profile
+     * @param repair whether to correct the rollups that drifted
+     * @return the number of rollup rows that did not match
+     */
+    @Transactional
+    public int verifyOwner(Long ownerId, boolean repair) {
+        if (profileRepository.lockById(ownerId).isEmpty()) {
+            return 0;
+        }
+        Map<RollupKey, Change> expected = new LinkedHashMap<>();
+        for (ExpenseAggregateView row : expenseRepository.aggregateByMonthAndCategory(ownerId)) {
+            RollupKey key = new RollupKey(Date.valueOf(LocalDate.of(row.getYear(), row.getMonth(), 1)), normalize(row.getCategory()));
+            expected.merge(key, new Change(row.getTotal(), row.getCount()), Change::plus);
+        }
+        Map<RollupKey, Change> actual = new HashMap<>();
+        for (ExpenseRollupEntity rollup : expenseRollupRepository.findByOwnerId(ownerId)) {
+            actual.put(new RollupKey(rollup.getRollupMonth(), rollup.getCategory()), new Change(rollup.getTotal(), rollup.getExpenseCount()));
+        }
+
+        // recomputed values of the rows that differ, null for rows that should not exist
+        Map<RollupKey, Change> drifted = new LinkedHashMap<>();
+        expected.forEach((key, change) -> {
+            if (!change.matches(actual.remove(key))) {
+                drifted.put(key, change);
+            }
+        });
+        actual.keySet().forEach(key -> drifted.put(key, null));
+
+        if (!drifted.isEmpty()) {
+            log.warn("Expense rollups of owner {} drifted in {} rows{}", ownerId, drifted.size(), repair ? ", repairing" : "");
+            if (repair) {
+                drifted.forEach((key, change) -> {
+                    if (change == null) {
+                        expenseRollupRepository.deleteRollup(ownerId, key.getRollupMonth(), key.getCategory());
+                    } else {
+                        expenseRollupRepository.setTotals(ownerId, key.getRollupMonth(), key.getCategory(), change.amount, change.count);
+                    }
+                });
+            }
+        }
+        return drifted.size();
+    }
+
+    private static String normalize(String category) {
+        return category == null ? "" : category;
+    }
+
+    private static Date monthOf(Date date) {
+        return Date.valueOf(date.toLocalDate().withDayOfMonth(1));
+    }
+
+    /**
+     * Rollup changes of one owner, merged per month and category before they are written.
+     */
+    public static class Deltas {
+
+        private final Long ownerId;
+
+        private final Map<RollupKey, Change> changes = new LinkedHashMap<>();
+
+        private Deltas(Long ownerId) {
+            this.ownerId = ownerId;
+        }
+
+        public Deltas added(ExpenseEntity expenseEntity) {
+            return change(expenseEntity.getDate(), expenseEntity.getCategory(), expenseEntity.getAmount(), 1);
+        }
+
+        public Deltas added(Date date, String category, BigDecimal amount) {
+            return change(date, category, amount, 1);
+        }
+
+        public Deltas removed(ExpenseEntity expenseEntity) {
+            return removed(expenseEntity.getDate(), expenseEntity.getCategory(), expenseEntity.getAmount());
+        }
+
+        public Deltas removed(Date date, String category, BigDecimal amount) {
+            return change(date, category, amount.negate(), -1);
+        }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        private Deltas change(Date date, String category, BigDecimal amount, long count) {
+            changes.merge(new RollupKey(monthOf(date), normalize(category)), new Change(amount, count), Change::plus);
+            return this;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class RollupKey {
+
+        private final Date rollupMonth;
+
+        private final String category;
+    }
+
+    @AllArgsConstructor
+    private static class Change {
+
+        private final BigDecimal amount;
+
+        private final long count;
+
+        private Change plus(Change other) {
+            return new Change(amount.add(other.amount), count + other.count);
+        }
+
+        private boolean matches(Change other) {
+            return other != null && count == other.count && amount.compareTo(other.amount) == 0;
+        }
+    }
+}
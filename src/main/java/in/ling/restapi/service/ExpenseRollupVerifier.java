@@ -0,0 +1,40 @@
+package in.ling.restapi.service;
+
+import in.ling.restapi.repository.ExpenseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically checks every owner's rollups against tbl_expenses to catch drift, for example
+ * from writes that bypassed the application. Every node runs it; repairs are idempotent because
+ * ExpenseRollupService.verifyOwner locks the owner and writes recomputed values.
+ * @author Ling
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ExpenseRollupVerifier {
+
+    private final ExpenseRepository expenseRepository;
+
+    private final ExpenseRollupService expenseRollupService;
+
+    @Value("${expense.rollup.repair:true}")
+    private boolean repair;
+
+    @Scheduled(cron = "${expense.rollup.verify-cron:0 30 3 * * *}")
+    public void verifyAll() {
+        int owners = 0;
+        int drifted = 0;
+        for (Long ownerId : expenseRepository.findOwnerIds()) {
+            owners++;
+            if (expenseRollupService.verifyOwner(ownerId, repair) > 0) {
+                drifted++;
+            }
+        }
+        log.info("Verified expense rollups of {} owners, {} had drifted", owners, drifted);
+    }
+}
@@ -1,8 +1,20 @@
 package in.ling.restapi.service;
 
+import in.ling.restapi.dto.ExpenseBatchItemDTO;
+import in.ling.restapi.dto.ExpenseBatchResultDTO;
 import in.ling.restapi.dto.ExpenseDTO;
+import in.ling.restapi.dto.ExpenseFilterDTO;
+import in.ling.restapi.dto.ExpensePageDTO;
+import in.ling.restapi.dto.ExpenseRollupDTO;
+import in.ling.restapi.dto.ExpenseSearchDTO;
+import in.ling.restapi.dto.ExpenseSummaryDTO;
+import in.ling.restapi.dto.ExpenseSummaryGrouping;
+import in.ling.restapi.dto.ExpensesVersionDTO;
 
+import java.sql.Date;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing expenses.
@@ -17,6 +29,31 @@ public interface ExpenseService {
      */
     List<ExpenseDTO> getAllExpenses();
 
+    /**
+     * Fetches one page of expenses ordered by (date desc, id desc).
+     * @param filter The optional filters to apply.
+     * @param cursor The opaque cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of expenses to return, or null for the default.
+     * @return The page of expenses and the cursor for the next page, if any.
+     */
+    ExpensePageDTO getExpensesPage(ExpenseFilterDTO filter, String cursor, Integer limit);
+
+    /**
+     * Searches the names and notes of the logged in profile's expenses, best matches first.
+     * @param query The free-text words to search for.
+     * @param page The zero-based page number, or null for the first page.
+     * @param size The maximum number of expenses to return, or null for the default.
+     * @return The page of matching expenses.
+     */
+    ExpenseSearchDTO searchExpenses(String query, Integer page, Integer size);
+
+    /**
+     * Streams all expenses of the logged in profile, newest first, to the consumer
+     * without collecting them in memory.
+     * @param consumer The callback receiving each expense in turn.
+     */
+    void exportExpenses(Consumer<ExpenseDTO> consumer);
+
     /**
      * Fetches an expense by its ID from the database.
      * @param expenseId The ID of the expense to be fetched.
@@ -24,11 +61,41 @@ public interface ExpenseService {
      */
     ExpenseDTO getExpenseByExpenseId(String expenseId);
 
+    /**
+     * Reads the version of the logged in profile's expense collection, which changes with every
+     * expense write, without loading any expenses.
+     * @return The collection version and the time of the last write.
+     */
+    ExpensesVersionDTO getExpensesVersion();
+
+    /**
+     * Reads the version of an expense without loading it.
+     * @param expenseId The ID of the expense.
+     * @return The current version of the expense.
+     */
+    long getExpenseVersion(String expenseId);
+
     /**
      * Deletes an expense by its ID from the database.
      * @param expenseId The ID of the expense to be deleted.
+     * @param expectedVersion The version the client has seen, or null to delete any version.
+     */
+    void deleteExpenseByExpenseId(String expenseId, Long expectedVersion);
+
+    /**
+     * Deletes the given expenses of the logged in profile in bounded chunks, each in its own transaction.
+     * @param expenseIds The IDs of the expenses to delete; unknown IDs are skipped.
+     * @return The number of deleted expenses.
      */
-    void deleteExpenseByExpenseId(String expenseId);
+    long deleteExpenses(List<String> expenseIds);
+
+    /**
+     * Deletes the expenses of the logged in profile within a date range and categories in bounded
+     * chunks, each in its own transaction. Only the date range and categories of the filter are used.
+     * @param filter The date range and categories to delete.
+     * @return The number of deleted expenses.
+     */
+    long deleteExpenses(ExpenseFilterDTO filter);
 
     /**
      * Saves expense details to the database.
@@ -38,10 +105,44 @@ public interface ExpenseService {
     ExpenseDTO saveExpenseDetails(ExpenseDTO expenseDTO);
 
     /**
-     * Updates expense details in the database.
+     * Replaces the details of an expense in the database.
      * @param expenseDTO The ExpenseDTO object containing updated expense details.
      * @param expenseId The ID of the expense to be updated.
+     * @param expectedVersion The version the client has seen, or null to update the current version.
      * @return The updated ExpenseDTO object.
      */
-    ExpenseDTO updateExpenseDetails(ExpenseDTO expenseDTO, String expenseId);
+    ExpenseDTO updateExpenseDetails(ExpenseDTO expenseDTO, String expenseId, Long expectedVersion);
+
+    /**
+     * Changes the given details of an expense in the database; null fields are left unchanged.
+     * @param expenseDTO The ExpenseDTO object containing the changed expense details.
+     * @param expenseId The ID of the expense to be updated.
+     * @param expectedVersion The version the client has seen, or null to update the current version.
+     * @return The updated ExpenseDTO object.
+     */
+    ExpenseDTO patchExpenseDetails(ExpenseDTO expenseDTO, String expenseId, Long expectedVersion);
+
+    /**
+     * Applies a batch of create, update and delete operations in one transaction.
+     * @param items The operations to apply, in order.
+     * @return The outcome of each operation, in the same order.
+     */
+    List<ExpenseBatchResultDTO> processBatch(List<ExpenseBatchItemDTO> items);
+
+    /**
+     * Aggregates the expenses of the logged in profile within a date range.
+     * @param from The first date of the range, inclusive.
+     * @param to The last date of the range, inclusive.
+     * @param grouping How the expenses are grouped into buckets.
+     * @return One summary per bucket, in bucket order.
+     */
+    List<ExpenseSummaryDTO> getExpenseSummary(Date from, Date to, ExpenseSummaryGrouping grouping);
+
+    /**
+     * Reads the precomputed monthly totals of the logged in profile per category.
+     * @param from The first month, inclusive.
+     * @param to The last month, inclusive.
+     * @return One rollup per month and category, ordered by month and category.
+     */
+    List<ExpenseRollupDTO> getMonthlyRollups(YearMonth from, YearMonth to);
 }
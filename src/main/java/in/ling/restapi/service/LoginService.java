@@ -0,0 +1,126 @@
+package in.ling.restapi.service;
+
+import in.ling.restapi.exceptions.ServiceUnavailableException;
+import in.ling.restapi.exceptions.TooManyRequestsException;
+import in.ling.restapi.util.JwtTokenUtil;
+import in.ling.restapi.util.QueryCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the BCrypt check of every login on a small, dedicated pool, so that a login storm
+ * cannot take every request thread away from the expense endpoints. At most
+ * security.login.queue-capacity logins wait for a thread; more are rejected at once with a
+ * 429, and a login that waited longer than security.login.max-wait is dropped with a 503
+ * before it is checked, since its client has likely given up. Both carry a Retry-After.
+ * The token is signed from the principal returned by the authentication, without loading
+ * the profile again. Pool usage is published as the executor.* meters tagged name=login,
+ * rejections as login.rejected tagged with the reason.
+ * @author Ling
+ */
+@Service
+public class LoginService implements DisposableBean {
+
+    private static final String BUSY_MESSAGE = "Too many logins in progress, try again later";
+
+    private final AuthenticationManager authenticationManager;
+
+    private final JwtTokenUtil jwtTokenUtil;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Duration maxWait;
+
+    private final Duration retryAfter;
+
+    private final Counter queueFull;
+
+    private final Counter timedOut;
+
+    public LoginService(AuthenticationManager authenticationManager,
+                        JwtTokenUtil jwtTokenUtil,
+                        MeterRegistry meterRegistry,
+                        @Value("${security.login.threads:0}") int threads,
+                        @Value("${security.login.queue-capacity:50}") int queueCapacity,
+                        @Value("${security.login.max-wait:2s}") Duration maxWait,
+                        @Value("${security.login.retry-after:1s}") Duration retryAfter) {
+        this.authenticationManager = authenticationManager;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.maxWait = maxWait;
+        this.retryAfter = retryAfter;
+        // BCrypt is pure CPU work, more threads than cores only add queueing inside the scheduler
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("login-"));
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "login");
+        this.queueFull = Counter.builder("login.rejected")
+                .tag("reason", "queue_full")
+                .description("Logins rejected because the login queue was full")
+                .register(meterRegistry);
+        this.timedOut = Counter.builder("login.rejected")
+                .tag("reason", "max_wait")
+                .description("Logins dropped because they waited too long for a login thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks the credentials on the login pool and signs a token for the authenticated profile.
+     * @param email the email of the profile
+     * @param password the raw password
+     * @return the signed token
+     * @throws TooManyRequestsException when the login queue is full
+     * @throws ServiceUnavailableException when the login waited too long for a thread
+     * @throws org.springframework.security.core.AuthenticationException when the credentials are wrong
+     */
+    public String login(String email, String password) {
+        long queuedAt = System.nanoTime();
+        Future<Authentication> authentication;
+        try {
+            // the profile lookup runs on the login thread, but belongs to this request's statement count
+            authentication = executor.submit(QueryCounter.propagate(() -> {
+                if (System.nanoTime() - queuedAt > maxWait.toNanos()) {
+                    timedOut.increment();
+                    throw new ServiceUnavailableException(BUSY_MESSAGE, retryAfter);
+                }
+                return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(email, password));
+            }));
+        } catch (RejectedExecutionException ex) {
+            queueFull.increment();
+            throw new TooManyRequestsException(BUSY_MESSAGE, retryAfter);
+        }
+        try {
+            return jwtTokenUtil.generateToken((UserDetails) authentication.get().getPrincipal());
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Login failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            authentication.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(BUSY_MESSAGE, retryAfter);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -1,6 +1,9 @@
 package in.ling.restapi.service;
 
 import in.ling.restapi.dto.ProfileDTO;
+import in.ling.restapi.dto.ProfileImportResultDTO;
+
+import java.util.List;
 
 public interface ProfileService {
 
@@ -12,4 +15,11 @@ public interface ProfileService {
 
     ProfileDTO createProfile(ProfileDTO profileDTO);
 
+    /**
+     * This method is used to create many profiles at once.
+     * @param profileDTOs the profile dtos
+     * @return the outcome of each profile, in the same order
+     */
+    List<ProfileImportResultDTO> createProfiles(List<ProfileDTO> profileDTOs);
+
 }
@@ -1,19 +1,95 @@
 package in.ling.restapi.service;
 
+import in.ling.restapi.entity.RevokedTokenEntity;
+import in.ling.restapi.repository.RevokedTokenRepository;
+import in.ling.restapi.security.RevokedTokenIndex;
+import in.ling.restapi.util.JwtTokenUtil;
+import in.ling.restapi.util.TokenDigestUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
 
+/**
+ * Revoked tokens, shared between nodes through tbl_revoked_tokens. Every node keeps an
+ * in-memory index that it syncs incrementally from the table and that forgets tokens once
+ * they expire.
+ * @author Ling
+ */
 @Service
+@Slf4j
 public class TokenBlacklistService {
 
-    private Set<String> blacklist = new HashSet<>();
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private final JwtTokenUtil jwtTokenUtil;
+
+    private final RevokedTokenIndex revokedTokenIndex;
+
+    private final Duration syncOverlap;
+
+    private volatile Timestamp lastSync;
+
+    public TokenBlacklistService(RevokedTokenRepository revokedTokenRepository,
+                                 JwtTokenUtil jwtTokenUtil,
+                                 @Value("${token-blacklist.expected-size:100000}") long expectedSize,
+                                 @Value("${token-blacklist.sync-overlap:30s}") Duration syncOverlap) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.revokedTokenIndex = new RevokedTokenIndex(expectedSize);
+        this.syncOverlap = syncOverlap;
+    }
 
     public void addTokenToBlacklist(String token) {
-        blacklist.add(token);
+        String digest = TokenDigestUtil.digest(token);
+        Timestamp expiresAt = new Timestamp(jwtTokenUtil.parseToken(token).getExpiration().getTime());
+        revokedTokenIndex.revoke(digest, expiresAt.getTime());
+        try {
+            revokedTokenRepository.save(RevokedTokenEntity.builder()
+                    .tokenDigest(digest)
+                    .expiresAt(expiresAt)
+                    .build());
+        } catch (DataIntegrityViolationException ex) {
+            log.debug("Token {} was already revoked", digest);
+        }
     }
+
     public boolean isTokenBlacklisted(String token) {
-        return blacklist.contains(token);
+        return revokedTokenIndex.isRevoked(TokenDigestUtil.digest(token), System.currentTimeMillis());
+    }
+
+    public int size() {
+        return revokedTokenIndex.size();
+    }
+
+    /**
+     * Pulls tokens revoked on other nodes. The first run loads every unexpired token; later runs
+     * only read rows revoked since the previous run, minus an overlap that absorbs clock skew
+     * and late commits.
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${token-blacklist.sync-interval:PT5S}", fixedDelayString = "${token-blacklist.sync-interval:PT5S}")
+    public void syncFromStore() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<RevokedTokenEntity> revokedTokens = lastSync == null
+                ? revokedTokenRepository.findByExpiresAtAfter(now)
+                : revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(
+                        new Timestamp(lastSync.getTime() - syncOverlap.toMillis()), now);
+        revokedTokens.forEach(revokedToken -> revokedTokenIndex.revoke(revokedToken.getTokenDigest(), revokedToken.getExpiresAt().getTime()));
+        lastSync = now;
+    }
+
+    @Scheduled(initialDelayString = "${token-blacklist.cleanup-interval:PT10M}", fixedDelayString = "${token-blacklist.cleanup-interval:PT10M}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        int evicted = revokedTokenIndex.evictExpired(now);
+        int deleted = revokedTokenRepository.deleteExpired(new Timestamp(now));
+        log.info("Evicted {} expired revoked tokens from memory and {} from the store", evicted, deleted);
     }
 }
@@ -1,20 +1,70 @@
 package in.ling.restapi.service.impl;
 
+import in.ling.restapi.dto.ExpenseBatchItemDTO;
+import in.ling.restapi.dto.ExpenseBatchResultDTO;
+import in.ling.restapi.dto.ExpenseBatchStatus;
 import in.ling.restapi.dto.ExpenseDTO;
+import in.ling.restapi.dto.ExpenseFilterDTO;
+import in.ling.restapi.dto.ExpensePageDTO;
+import in.ling.restapi.dto.ExpenseRollupDTO;
+import in.ling.restapi.dto.ExpenseSearchDTO;
+import in.ling.restapi.dto.ExpenseSummaryDTO;
+import in.ling.restapi.dto.ExpenseSummaryGrouping;
+import in.ling.restapi.dto.ExpensesVersionDTO;
 import in.ling.restapi.entity.ExpenseEntity;
+import in.ling.restapi.entity.ExpenseRollupEntity;
 import in.ling.restapi.entity.ProfileEntity;
+import in.ling.restapi.exceptions.InvalidRequestException;
+import in.ling.restapi.exceptions.PreconditionFailedException;
 import in.ling.restapi.exceptions.ResourceNotFoundException;
+import in.ling.restapi.exceptions.VersionConflictException;
+import in.ling.restapi.mapper.ExpenseMapper;
+import in.ling.restapi.repository.ExpenseAggregateView;
 import in.ling.restapi.repository.ExpenseRepository;
+import in.ling.restapi.repository.ExpenseRollupRepository;
+import in.ling.restapi.repository.ExpenseSearchIndex;
+import in.ling.restapi.repository.ExpenseSnapshotView;
+import in.ling.restapi.repository.ExpenseSpecifications;
+import in.ling.restapi.repository.ProfileRepository;
 import in.ling.restapi.service.AuthService;
+import in.ling.restapi.service.ExpenseRollupService;
 import in.ling.restapi.service.ExpenseService;
+import in.ling.restapi.util.ExpenseCursor;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @description ExpenseServiceImpl implements the ExpenseService interface to manage expenses.
@@ -23,52 +73,263 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "expense.service", description = "Time spent in ExpenseService methods")
 public class ExpenseServiceImpl implements ExpenseService {
 
+    private static final Sort PAGE_ORDER = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+
     private final ExpenseRepository expenseRepository;
 
-    private final ModelMapper modelMapper;
+    private final ExpenseMapper expenseMapper;
 
     private final AuthService authService;
 
+    private final EntityManager entityManager;
+
+    private final ExpenseRollupService expenseRollupService;
+
+    private final ExpenseRollupRepository expenseRollupRepository;
+
+    private final ExpenseSearchIndex expenseSearchIndex;
+
+    private final ProfileRepository profileRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${expense.page.default-limit:50}")
+    private int defaultPageLimit;
+
+    @Value("${expense.page.max-limit:500}")
+    private int maxPageLimit;
+
+    @Value("${expense.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${expense.bulk-delete.chunk-size:500}")
+    private int bulkDeleteChunkSize;
+
+    @Value("${expense.bulk-delete.max-ids:10000}")
+    private int maxBulkDeleteIds;
+
     /**
      * @description This method fetches all expenses from the database.
      * @return List of ExpenseDTO objects containing expense details.
      **/
     @Override
+    @Transactional(readOnly = true)
     public List<ExpenseDTO> getAllExpenses() {
         // Call the repository method to fetch all expenses
-        Long loggedInProfiledId = authService.getLoggedInProfile().getId();
+        Long loggedInProfiledId = authService.getLoggedInProfileId();
         List<ExpenseEntity> list = expenseRepository.findByOwnerId(loggedInProfiledId);
-        log.info("Print the data from repository {}", list);
-        // Convert the Entity objects to DTOs using ModelMapper
+        log.debug("Fetched {} expenses from repository", list.size());
+        // Convert the Entity objects to DTOs
         List<ExpenseDTO> listOfExpenses = list.stream().map(expenseEntity -> mapToExpenseDTO(expenseEntity)).collect(Collectors.toList());
         // Return the list of DTOs
         return listOfExpenses;
     }
 
+    /**
+     * @description This method fetches one keyset page of expenses from the database.
+     * The filters and the keyset position are combined into one owner-scoped query, and
+     * one extra row is read to find out whether a next page exists.
+     * @param filter The optional filters to apply.
+     * @param cursor The opaque cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of expenses to return, or null for the default.
+     * @return The page of expenses and the cursor for the next page, if any.
+     **/
+    @Override
+    @Transactional(readOnly = true)
+    public ExpensePageDTO getExpensesPage(ExpenseFilterDTO filter, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageLimit : limit;
+        if (pageSize < 1 || pageSize > maxPageLimit) {
+            throw new InvalidRequestException("Limit should be between 1 and " + maxPageLimit);
+        }
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        ExpenseCursor position = cursor == null || cursor.isBlank() ? null : ExpenseCursor.decode(cursor);
+        List<ExpenseEntity> list = expenseRepository.findBy(ExpenseSpecifications.matching(loggedInProfileId, filter, position),
+                query -> query.sortBy(PAGE_ORDER).limit(pageSize + 1).all());
+        String nextCursor = null;
+        if (list.size() > pageSize) {
+            list = list.subList(0, pageSize);
+            ExpenseEntity last = list.get(pageSize - 1);
+            nextCursor = new ExpenseCursor(last.getDate(), last.getId()).encode();
+        }
+        List<ExpenseDTO> listOfExpenses = list.stream().map(expenseEntity -> mapToExpenseDTO(expenseEntity)).collect(Collectors.toList());
+        return new ExpensePageDTO(listOfExpenses, nextCursor);
+    }
+
+    /**
+     * @description This method searches the names and notes of the logged in profile's expenses.
+     * With the FULLTEXT index every word has to match as a word prefix and results are ranked by
+     * relevance; without it the whole query is matched as a substring, newest first.
+     * In both cases one extra row is read to find out whether a next page exists.
+     * @param query The free-text words to search for.
+     * @param page The zero-based page number, or null for the first page.
+     * @param size The maximum number of expenses to return, or null for the default.
+     * @return The page of matching expenses.
+     **/
+    @Override
+    @Transactional(readOnly = true)
+    public ExpenseSearchDTO searchExpenses(String query, Integer page, Integer size) {
+        int pageNumber = page == null ? 0 : page;
+        int pageSize = size == null ? defaultPageLimit : size;
+        if (pageNumber < 0) {
+            throw new InvalidRequestException("Page should not be negative");
+        }
+        if (pageSize < 1 || pageSize > maxPageLimit) {
+            throw new InvalidRequestException("Size should be between 1 and " + maxPageLimit);
+        }
+        List<String> words = query == null ? List.of() : Stream.of(query.split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toList());
+        if (words.isEmpty()) {
+            throw new InvalidRequestException("Search query should contain at least one word");
+        }
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        List<ExpenseEntity> list;
+        boolean hasNext;
+        if (expenseSearchIndex.isFullTextAvailable()) {
+            String terms = words.stream().map(word -> "+" + word + "*").collect(Collectors.joining(" "));
+            list = expenseRepository.searchFullText(loggedInProfileId, terms, pageSize + 1, (long) pageNumber * pageSize);
+            hasNext = list.size() > pageSize;
+            if (hasNext) {
+                list = list.subList(0, pageSize);
+            }
+        } else {
+            String pattern = "%" + String.join(" ", words).toLowerCase(Locale.ROOT) + "%";
+            Slice<ExpenseEntity> slice = expenseRepository.searchByPattern(loggedInProfileId, pattern, PageRequest.of(pageNumber, pageSize));
+            list = slice.getContent();
+            hasNext = slice.hasNext();
+        }
+        List<ExpenseDTO> listOfExpenses = list.stream().map(expenseEntity -> mapToExpenseDTO(expenseEntity)).collect(Collectors.toList());
+        return new ExpenseSearchDTO(listOfExpenses, pageNumber, pageSize, hasNext);
+    }
+
+    /**
+     * @description This method streams all expenses of the logged in profile to the consumer.
+     * Each entity is detached once handed over, so the persistence context stays empty.
+     * @param consumer The callback receiving each expense in turn.
+     **/
+    @Override
+    @Transactional(readOnly = true)
+    public void exportExpenses(Consumer<ExpenseDTO> consumer) {
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        try (Stream<ExpenseEntity> stream = expenseRepository.streamByOwnerId(loggedInProfileId)) {
+            stream.forEach(expenseEntity -> {
+                consumer.accept(mapToExpenseDTO(expenseEntity));
+                entityManager.detach(expenseEntity);
+            });
+        }
+    }
+
     /**
      * @description This method fetches an expense by its ID from the database.
      * @param expenseId The ID of the expense to be fetched.
      * @return The ExpenseDTO object containing the expense details.
      **/
     @Override
+    @Transactional(readOnly = true)
     public ExpenseDTO  getExpenseByExpenseId(String expenseId) {
         ExpenseEntity expenseEntity = getExpenseEntity(expenseId);
-        log.info("Print the expense entity details {}", expenseEntity);
+        log.debug("Print the expense entity details {}", expenseEntity);
         return mapToExpenseDTO(expenseEntity);
     }
 
 
     /**
-     * @description This method deletes an expense by its ID from the database.
+     * @description This method reads the expense collection version from the profile row.
+     * @return The collection version and the time of the last write.
+     **/
+    @Override
+    @Transactional(readOnly = true)
+    public ExpensesVersionDTO getExpensesVersion() {
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        return profileRepository.findExpensesVersionById(loggedInProfileId)
+                .map(view -> new ExpensesVersionDTO(loggedInProfileId, view.getVersion(), view.getModifiedAt()))
+                .orElseGet(() -> new ExpensesVersionDTO(loggedInProfileId, 0L, null));
+    }
+
+    /**
+     * @description This method reads the version of an expense with a single column query.
+     * @param expenseId The ID of the expense.
+     * @return The current version of the expense.
+     **/
+    @Override
+    @Transactional(readOnly = true)
+    public long getExpenseVersion(String expenseId) {
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        return expenseRepository.findVersionByOwnerIdAndExpenseId(loggedInProfileId, expenseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Expense not found for the expense id" + expenseId));
+    }
+
+    /**
+     * @description This method deletes an expense by its ID with one owner-scoped, versioned DELETE.
+     * Only the columns the rollup delta needs are read first; the entity is never loaded.
      * @param expenseId The ID of the expense to be deleted.
+     * @param expectedVersion The version the client has seen, or null to delete any version.
      **/
     @Override
-    public void deleteExpenseByExpenseId(String expenseId) {
-        ExpenseEntity expenseEntity = getExpenseEntity(expenseId);
-        log.info("Print the expense entity details {}", expenseEntity);
-        expenseRepository.delete(expenseEntity);
+    @Transactional
+    public void deleteExpenseByExpenseId(String expenseId, Long expectedVersion) {
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        ExpenseSnapshotView snapshot = expenseRepository.findSnapshotByOwnerIdAndExpenseId(loggedInProfileId, expenseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Expense not found for the expense id" + expenseId));
+        checkExpectedVersion(expenseId, snapshot.getVersion(), expectedVersion);
+        markExpensesChanged(loggedInProfileId);
+        int rows = expenseRepository.deleteIfVersionMatches(loggedInProfileId, expenseId, snapshot.getVersion());
+        log.info("Deleted {} row(s) for expense id {}", rows, expenseId);
+        if (rows == 0) {
+            throw new VersionConflictException("Expense " + expenseId + " was changed by another request");
+        }
+        expenseRollupService.apply(expenseRollupService.newDeltas(loggedInProfileId)
+                .removed(snapshot.getDate(), snapshot.getCategory(), snapshot.getAmount()));
+    }
+
+    /**
+     * @description This method deletes expenses by their IDs, at most bulkDeleteChunkSize per transaction.
+     * @param expenseIds The IDs of the expenses to delete; unknown IDs are skipped.
+     * @return The number of deleted expenses.
+     **/
+    @Override
+    public long deleteExpenses(List<String> expenseIds) {
+        if (expenseIds.size() > maxBulkDeleteIds) {
+            throw new InvalidRequestException("Bulk delete should name at most " + maxBulkDeleteIds + " expenses");
+        }
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        List<String> distinctIds = expenseIds.stream().distinct().collect(Collectors.toList());
+        long deleted = 0;
+        for (int start = 0; start < distinctIds.size(); start += bulkDeleteChunkSize) {
+            List<String> chunk = distinctIds.subList(start, Math.min(start + bulkDeleteChunkSize, distinctIds.size()));
+            deleted += deleteChunk(loggedInProfileId, () -> expenseRepository.lockSnapshotsByOwnerIdAndExpenseIdIn(loggedInProfileId, chunk));
+        }
+        log.info("Bulk deleted {} of {} expenses by id", deleted, distinctIds.size());
+        return deleted;
+    }
+
+    /**
+     * @description This method deletes the expenses matching a date range and categories, at most
+     * bulkDeleteChunkSize per transaction, until no matching expense is left.
+     * @param filter The date range and categories to delete.
+     * @return The number of deleted expenses.
+     **/
+    @Override
+    public long deleteExpenses(ExpenseFilterDTO filter) {
+        if (filter.getFrom() != null && filter.getTo() != null && filter.getFrom().after(filter.getTo())) {
+            throw new InvalidRequestException("The from date should not be after the to date");
+        }
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        boolean anyCategory = filter.getCategories() == null || filter.getCategories().isEmpty();
+        // an empty IN list is not valid SQL, the placeholder is never compared when anyCategory is set
+        List<String> categories = anyCategory ? List.of("") : filter.getCategories();
+        long deleted = 0;
+        int rows;
+        do {
+            rows = deleteChunk(loggedInProfileId, () -> expenseRepository.lockSnapshotsByOwnerIdAndFilter(loggedInProfileId,
+                    filter.getFrom(), filter.getTo(), anyCategory, categories, Limit.of(bulkDeleteChunkSize)));
+            deleted += rows;
+        } while (rows == bulkDeleteChunkSize);
+        log.info("Bulk deleted {} expenses from {} to {} in categories {}", deleted, filter.getFrom(), filter.getTo(), filter.getCategories());
+        return deleted;
     }
 
     /**
@@ -77,28 +338,362 @@ public class ExpenseServiceImpl implements ExpenseService {
      * @return The saved ExpenseDTO object.
      **/
     @Override
+    @Transactional
     public ExpenseDTO saveExpenseDetails(ExpenseDTO expenseDTO) {
-        ProfileEntity profileEntity = authService.getLoggedInProfile();
+        ProfileEntity profileEntity = authService.getLoggedInProfileReference();
+        markExpensesChanged(profileEntity.getId());
         ExpenseEntity newExpenseEntity = mapToExpenseEntity(expenseDTO);
         newExpenseEntity.setExpenseId(UUID.randomUUID().toString());
         newExpenseEntity.setOwner(profileEntity);
         newExpenseEntity = expenseRepository.save(newExpenseEntity);
-        log.info("Print the expense entity details {}", newExpenseEntity);
+        expenseRollupService.apply(expenseRollupService.newDeltas(profileEntity.getId()).added(newExpenseEntity));
+        log.debug("Print the expense entity details {}", newExpenseEntity);
         return mapToExpenseDTO(newExpenseEntity);
     }
 
+    /**
+     * @description This method replaces the details of an expense.
+     * @param expenseDTO The ExpenseDTO object containing updated expense details.
+     * @param expenseId The ID of the expense to be updated.
+     * @param expectedVersion The version the client has seen, or null to update the current version.
+     * @return The updated ExpenseDTO object.
+     **/
     @Override
-    public ExpenseDTO updateExpenseDetails(ExpenseDTO expenseDTO, String expenseId) {
-        ExpenseEntity existingExpense = getExpenseEntity(expenseId);
-        ExpenseEntity updatedExpenseEntity = mapToExpenseEntity(expenseDTO);
-        updatedExpenseEntity.setId(existingExpense.getId());
-        updatedExpenseEntity.setExpenseId(existingExpense.getExpenseId());
-        updatedExpenseEntity.setCreatedAt(existingExpense.getCreatedAt());
-        updatedExpenseEntity.setUpdatedAt(existingExpense.getUpdatedAt());
-        updatedExpenseEntity.setOwner(authService.getLoggedInProfile());
-        updatedExpenseEntity = expenseRepository.save(updatedExpenseEntity);
-        log.info("Print the expense entity details {}", updatedExpenseEntity);
-        return mapToExpenseDTO(updatedExpenseEntity);
+    @Transactional
+    public ExpenseDTO updateExpenseDetails(ExpenseDTO expenseDTO, String expenseId, Long expectedVersion) {
+        return writeExpenseDetails(expenseId, expectedVersion, updated -> {
+            updated.setName(expenseDTO.getName());
+            updated.setNote(expenseDTO.getNote());
+            updated.setCategory(expenseDTO.getCategory());
+            updated.setDate(expenseDTO.getDate());
+            updated.setAmount(expenseDTO.getAmount());
+        });
+    }
+
+    /**
+     * @description This method changes the given details of an expense and keeps the others.
+     * @param expenseDTO The ExpenseDTO object containing the changed expense details.
+     * @param expenseId The ID of the expense to be updated.
+     * @param expectedVersion The version the client has seen, or null to update the current version.
+     * @return The updated ExpenseDTO object.
+     **/
+    @Override
+    @Transactional
+    public ExpenseDTO patchExpenseDetails(ExpenseDTO expenseDTO, String expenseId, Long expectedVersion) {
+        return writeExpenseDetails(expenseId, expectedVersion, updated -> {
+            if (expenseDTO.getName() != null) {
+                updated.setName(expenseDTO.getName());
+            }
+            if (expenseDTO.getNote() != null) {
+                updated.setNote(expenseDTO.getNote());
+            }
+            if (expenseDTO.getCategory() != null) {
+                updated.setCategory(expenseDTO.getCategory());
+            }
+            if (expenseDTO.getDate() != null) {
+                updated.setDate(expenseDTO.getDate());
+            }
+            if (expenseDTO.getAmount() != null) {
+                updated.setAmount(expenseDTO.getAmount());
+            }
+        });
+    }
+
+    /**
+     * @description This method applies a batch of create, update and delete operations in one transaction.
+     * The owner and all referenced expenses are loaded with one query each; the writes are flushed
+     * together at the end so Hibernate can send them as JDBC batches.
+     * @param items The operations to apply, in order.
+     * @return The outcome of each operation, in the same order.
+     **/
+    @Override
+    @Transactional
+    public List<ExpenseBatchResultDTO> processBatch(List<ExpenseBatchItemDTO> items) {
+        if (items.size() > maxBatchSize) {
+            throw new InvalidRequestException("Batch should contain at most " + maxBatchSize + " operations");
+        }
+        ProfileEntity profileEntity = authService.getLoggedInProfileReference();
+        // before any entity is dirty, so the flush of this update cannot write expense rows first
+        markExpensesChanged(profileEntity.getId());
+        Set<String> referencedIds = items.stream()
+                .filter(item -> item.getExpenseId() != null)
+                .map(ExpenseBatchItemDTO::getExpenseId)
+                .collect(Collectors.toSet());
+        Map<String, ExpenseEntity> existing = referencedIds.isEmpty() ? new HashMap<>() :
+                expenseRepository.findByOwnerIdAndExpenseIdIn(profileEntity.getId(), referencedIds).stream()
+                        .collect(Collectors.toMap(ExpenseEntity::getExpenseId, Function.identity()));
+
+        List<ExpenseEntity> created = new ArrayList<>();
+        List<ExpenseEntity> deleted = new ArrayList<>();
+        ExpenseRollupService.Deltas deltas = expenseRollupService.newDeltas(profileEntity.getId());
+        List<ExpenseBatchResultDTO> results = new ArrayList<>(items.size());
+        List<ExpenseEntity> resultEntities = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ExpenseBatchItemDTO item = items.get(i);
+            ExpenseBatchResultDTO result = ExpenseBatchResultDTO.builder()
+                    .index(i)
+                    .operation(item.getOperation())
+                    .expenseId(item.getExpenseId())
+                    .build();
+            ExpenseEntity expenseEntity = null;
+            switch (item.getOperation()) {
+                case CREATE -> {
+                    if (item.getExpense() == null) {
+                        result.setStatus(ExpenseBatchStatus.INVALID);
+                        result.setMessage("Expense details are required");
+                        break;
+                    }
+                    expenseEntity = mapToExpenseEntity(item.getExpense());
+                    expenseEntity.setExpenseId(UUID.randomUUID().toString());
+                    expenseEntity.setOwner(profileEntity);
+                    created.add(expenseEntity);
+                    deltas.added(expenseEntity);
+                    existing.put(expenseEntity.getExpenseId(), expenseEntity);
+                    result.setExpenseId(expenseEntity.getExpenseId());
+                    result.setStatus(ExpenseBatchStatus.CREATED);
+                }
+                case UPDATE -> {
+                    if (item.getExpense() == null) {
+                        result.setStatus(ExpenseBatchStatus.INVALID);
+                        result.setMessage("Expense details are required");
+                        break;
+                    }
+                    expenseEntity = existing.get(item.getExpenseId());
+                    if (expenseEntity == null) {
+                        result.setStatus(ExpenseBatchStatus.NOT_FOUND);
+                        result.setMessage("Expense not found for the expense id" + item.getExpenseId());
+                        break;
+                    }
+                    deltas.removed(expenseEntity);
+                    copyExpenseDetails(item.getExpense(), expenseEntity);
+                    deltas.added(expenseEntity);
+                    result.setStatus(ExpenseBatchStatus.UPDATED);
+                }
+                case DELETE -> {
+                    ExpenseEntity removed = existing.remove(item.getExpenseId());
+                    if (removed == null) {
+                        result.setStatus(ExpenseBatchStatus.NOT_FOUND);
+                        result.setMessage("Expense not found for the expense id" + item.getExpenseId());
+                        break;
+                    }
+                    if (!created.remove(removed)) {
+                        deleted.add(removed);
+                    }
+                    deltas.removed(removed);
+                    result.setStatus(ExpenseBatchStatus.DELETED);
+                }
+            }
+            results.add(result);
+            resultEntities.add(expenseEntity);
+        }
+
+        expenseRepository.saveAll(created);
+        expenseRepository.deleteAll(deleted);
+        expenseRepository.flush();
+        expenseRollupService.apply(deltas);
+
+        for (int i = 0; i < results.size(); i++) {
+            ExpenseEntity expenseEntity = resultEntities.get(i);
+            if (expenseEntity != null && results.get(i).getStatus() != ExpenseBatchStatus.DELETED) {
+                results.get(i).setExpense(mapToExpenseDTO(expenseEntity));
+            }
+        }
+        log.info("Processed expense batch of {} operations: {} created, {} deleted", items.size(), created.size(), deleted.size());
+        return results;
+    }
+
+    /**
+     * @description This method aggregates expenses with GROUP BY queries in the database.
+     * Weeks are folded from the per-day rows so that they follow ISO week-based years.
+     * @param from The first date of the range, inclusive.
+     * @param to The last date of the range, inclusive.
+     * @param grouping How the expenses are grouped into buckets.
+     * @return One summary per bucket, in bucket order.
+     **/
+    @Override
+    @Transactional(readOnly = true)
+    public List<ExpenseSummaryDTO> getExpenseSummary(Date from, Date to, ExpenseSummaryGrouping grouping) {
+        if (from.after(to)) {
+            throw new InvalidRequestException("The from date should not be after the to date");
+        }
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        return switch (grouping) {
+            case CATEGORY -> expenseRepository.aggregateByCategory(loggedInProfileId, from, to).stream()
+                    .map(row -> mapToExpenseSummaryDTO(row.getCategory(), row))
+                    .collect(Collectors.toList());
+            case MONTH -> expenseRepository.aggregateByMonth(loggedInProfileId, from, to).stream()
+                    .map(row -> mapToExpenseSummaryDTO(String.format("%04d-%02d", row.getYear(), row.getMonth()), row))
+                    .collect(Collectors.toList());
+            case DAY -> expenseRepository.aggregateByDay(loggedInProfileId, from, to).stream()
+                    .map(row -> mapToExpenseSummaryDTO(row.getDay().toString(), row))
+                    .collect(Collectors.toList());
+            case WEEK -> foldIntoWeeks(expenseRepository.aggregateByDay(loggedInProfileId, from, to));
+        };
+    }
+
+    /**
+     * @description This method reads the monthly rollups maintained by ExpenseRollupService,
+     * so the cost depends on the number of months rather than the number of expenses.
+     * @param from The first month, inclusive.
+     * @param to The last month, inclusive.
+     * @return One rollup per month and category, ordered by month and category.
+     **/
+    @Override
+    @Transactional(readOnly = true)
+    public List<ExpenseRollupDTO> getMonthlyRollups(YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            throw new InvalidRequestException("The from month should not be after the to month");
+        }
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        List<ExpenseRollupEntity> rollups = expenseRollupRepository.findByOwnerIdAndRollupMonthBetweenOrderByRollupMonthAscCategoryAsc(
+                loggedInProfileId, Date.valueOf(from.atDay(1)), Date.valueOf(to.atDay(1)));
+        return rollups.stream()
+                .map(rollup -> ExpenseRollupDTO.builder()
+                        .month(YearMonth.from(rollup.getRollupMonth().toLocalDate()).toString())
+                        .category(rollup.getCategory())
+                        .total(rollup.getTotal())
+                        .count(rollup.getExpenseCount())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @description This method writes new expense details with one owner-scoped, versioned UPDATE.
+     * The current row is read first because the rollup delta and the response need its old values;
+     * the UPDATE only succeeds if nobody changed the row in between.
+     * @param expenseId The ID of the expense to be updated.
+     * @param expectedVersion The version the client has seen, or null to update the current version.
+     * @param changes The changes to apply to a copy of the current details.
+     * @return The updated ExpenseDTO object.
+     **/
+    private ExpenseDTO writeExpenseDetails(String expenseId, Long expectedVersion, Consumer<ExpenseDTO> changes) {
+        Long loggedInProfileId = authService.getLoggedInProfileId();
+        ExpenseEntity current = getExpenseEntity(expenseId);
+        checkExpectedVersion(expenseId, current.getVersion(), expectedVersion);
+        markExpensesChanged(loggedInProfileId);
+        // the UPDATE below bypasses the persistence context, keep the stale copy out of it
+        entityManager.detach(current);
+        ExpenseDTO updated = mapToExpenseDTO(current);
+        changes.accept(updated);
+        Timestamp updatedAt = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        int rows = expenseRepository.updateIfVersionMatches(loggedInProfileId, expenseId, current.getVersion(),
+                updated.getName(), updated.getNote(), updated.getCategory(), updated.getDate(), updated.getAmount(), updatedAt);
+        if (rows == 0) {
+            throw new VersionConflictException("Expense " + expenseId + " was changed by another request");
+        }
+        updated.setUpdatedAt(updatedAt);
+        updated.setVersion(current.getVersion() + 1);
+        expenseRollupService.apply(expenseRollupService.newDeltas(loggedInProfileId)
+                .removed(current)
+                .added(updated.getDate(), updated.getCategory(), updated.getAmount()));
+        log.info("Updated expense {} to version {}", expenseId, updated.getVersion());
+        return updated;
+    }
+
+    /**
+     * @description This method rejects a write that is based on an outdated version of the expense.
+     * @param expenseId The ID of the expense.
+     * @param currentVersion The current version of the expense.
+     * @param expectedVersion The version the client has seen, or null to accept any version.
+     **/
+    private void checkExpectedVersion(String expenseId, Long currentVersion, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new PreconditionFailedException("Expense " + expenseId + " is at version "
+                    + currentVersion + ", not " + expectedVersion);
+        }
+    }
+
+    /**
+     * @description This method deletes one chunk of expenses in its own short transaction. The rows
+     * are locked while they are read, so the rollup delta matches exactly what is deleted.
+     * @param ownerId The id of the owner profile.
+     * @param selectChunk Locks and reads the snapshots of the next chunk.
+     * @return The number of deleted expenses.
+     **/
+    private int deleteChunk(Long ownerId, Supplier<List<ExpenseSnapshotView>> selectChunk) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            markExpensesChanged(ownerId);
+            List<ExpenseSnapshotView> snapshots = selectChunk.get();
+            if (snapshots.isEmpty()) {
+                return 0;
+            }
+            int rows = expenseRepository.deleteByOwnerIdAndIdIn(ownerId,
+                    snapshots.stream().map(ExpenseSnapshotView::getId).collect(Collectors.toList()));
+            ExpenseRollupService.Deltas deltas = expenseRollupService.newDeltas(ownerId);
+            snapshots.forEach(snapshot -> deltas.removed(snapshot.getDate(), snapshot.getCategory(), snapshot.getAmount()));
+            expenseRollupService.apply(deltas);
+            return rows;
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    /**
+     * @description This method bumps the owner's expense collection version so that cached
+     * collection responses stop matching their ETag. Writers call it before they touch any expense
+     * or rollup row: the UPDATE locks the profile row, and taking that lock first keeps it from
+     * deadlocking with the shared locks the foreign keys of the child rows take on the same row.
+     * @param ownerId The id of the owner profile.
+     **/
+    private void markExpensesChanged(Long ownerId) {
+        profileRepository.markExpensesChanged(ownerId, Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * @description This method merges per-day aggregates into ISO week buckets such as 2024-W07.
+     * @param days The per-day aggregate rows, ordered by date.
+     * @return One summary per week, in week order.
+     **/
+    private List<ExpenseSummaryDTO> foldIntoWeeks(List<ExpenseAggregateView> days) {
+        Map<String, ExpenseSummaryDTO> weeks = new LinkedHashMap<>();
+        for (ExpenseAggregateView day : days) {
+            LocalDate date = day.getDay().toLocalDate();
+            String bucket = String.format("%04d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            ExpenseSummaryDTO week = weeks.get(bucket);
+            if (week == null) {
+                weeks.put(bucket, mapToExpenseSummaryDTO(bucket, day));
+                continue;
+            }
+            week.setTotal(week.getTotal().add(day.getTotal()));
+            week.setCount(week.getCount() + day.getCount());
+            week.setMinAmount(week.getMinAmount().min(day.getMinAmount()));
+            week.setMaxAmount(week.getMaxAmount().max(day.getMaxAmount()));
+        }
+        weeks.values().forEach(week -> week.setAverage(average(week.getTotal(), week.getCount())));
+        return new ArrayList<>(weeks.values());
+    }
+
+    /**
+     * @description This method maps one aggregate row to an ExpenseSummaryDTO object.
+     * @param bucket The label of the bucket.
+     * @param row The aggregate row.
+     * @return The mapped ExpenseSummaryDTO object.
+     **/
+    private ExpenseSummaryDTO mapToExpenseSummaryDTO(String bucket, ExpenseAggregateView row) {
+        return ExpenseSummaryDTO.builder()
+                .bucket(bucket)
+                .total(row.getTotal())
+                .count(row.getCount())
+                .minAmount(row.getMinAmount())
+                .maxAmount(row.getMaxAmount())
+                .average(average(row.getTotal(), row.getCount()))
+                .build();
+    }
+
+    private static BigDecimal average(BigDecimal total, Long count) {
+        return total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * @description This method copies the editable expense fields onto a managed entity.
+     * @param expenseDTO The ExpenseDTO object containing the new values.
+     * @param expenseEntity The ExpenseEntity object to be updated.
+     **/
+    private void copyExpenseDetails(ExpenseDTO expenseDTO, ExpenseEntity expenseEntity) {
+        expenseEntity.setName(expenseDTO.getName());
+        expenseEntity.setNote(expenseDTO.getNote());
+        expenseEntity.setCategory(expenseDTO.getCategory());
+        expenseEntity.setDate(expenseDTO.getDate());
+        expenseEntity.setAmount(expenseDTO.getAmount());
     }
 
     /**
@@ -107,7 +702,7 @@ public class ExpenseServiceImpl implements ExpenseService {
      * @return The mapped ExpenseEntity object.
      **/
     private ExpenseEntity mapToExpenseEntity(ExpenseDTO expenseDTO) {
-        return modelMapper.map(expenseDTO, ExpenseEntity.class);
+        return expenseMapper.toExpenseEntity(expenseDTO);
     }
 
     /**
@@ -116,7 +711,7 @@ public class ExpenseServiceImpl implements ExpenseService {
      * @return The mapped ExpenseDTO object.
      **/
     private ExpenseDTO mapToExpenseDTO(ExpenseEntity expenseEntity) {
-        return modelMapper.map(expenseEntity, ExpenseDTO.class);
+        return expenseMapper.toExpenseDTO(expenseEntity);
     }
 
     /**
@@ -125,7 +720,7 @@ public class ExpenseServiceImpl implements ExpenseService {
      * @return The ExpenseEntity object.
      **/
     private ExpenseEntity getExpenseEntity(String expenseId) {
-        Long id = authService.getLoggedInProfile().getId();
+        Long id = authService.getLoggedInProfileId();
         return expenseRepository.findByOwnerIdAndExpenseId(id, expenseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense not found for the expense id" + expenseId));
 
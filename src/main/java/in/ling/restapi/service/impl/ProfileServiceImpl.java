@@ -1,17 +1,35 @@
 package in.ling.restapi.service.impl;
 
 import in.ling.restapi.dto.ProfileDTO;
+import in.ling.restapi.dto.ProfileImportResultDTO;
+import in.ling.restapi.dto.ProfileImportStatus;
 import in.ling.restapi.entity.ProfileEntity;
+import in.ling.restapi.exceptions.InvalidRequestException;
 import in.ling.restapi.exceptions.ItemExistsException;
+import in.ling.restapi.exceptions.ResourceNotFoundException;
+import in.ling.restapi.mapper.ProfileMapper;
 import in.ling.restapi.repository.ProfileRepository;
+import in.ling.restapi.security.ParallelPasswordEncoder;
+import in.ling.restapi.security.ProfileCache;
 import in.ling.restapi.service.ProfileService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -19,8 +37,27 @@ import java.util.UUID;
 public class ProfileServiceImpl implements ProfileService {
 
     private final ProfileRepository profileRepository;
-    private final ModelMapper modelMapper;
+    private final ProfileMapper profileMapper;
     private final PasswordEncoder encoder;
+    private final ProfileCache profileCache;
+    private final ParallelPasswordEncoder parallelEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // a taken email is skipped by the unique key instead of failing the batch
+    private static final String INSERT_PROFILE = "insert into tbl_profile " +
+            "(profile_id, email, name, password, created_at, updated_at, expenses_version) values (?, ?, ?, ?, ?, ?, 0) " +
+            "on duplicate key update id = id";
+
+    // any authenticated caller could otherwise create accounts in bulk, so the import is opt-in
+    @Value("${profile.import.enabled:false}")
+    private boolean importEnabled;
+
+    @Value("${profile.import.max-size:2000}")
+    private int maxImportSize;
+
+    @Value("${profile.import.insert-batch-size:500}")
+    private int insertBatchSize;
 
     /**
      * This method is used to create a new profile to database.
@@ -29,24 +66,124 @@ public class ProfileServiceImpl implements ProfileService {
      */
     @Override
     public ProfileDTO createProfile(ProfileDTO profileDTO) {
-        if (profileRepository.existsByEmail(profileDTO.getEmail())) {
+        if (profileCache.existsByEmail(profileDTO.getEmail())) {
             throw new ItemExistsException("Profile already exists with the email: " + profileDTO.getEmail());
         }
         profileDTO.setPassword(encoder.encode(profileDTO.getPassword()));
         ProfileEntity profileEntity = mapToProfileEntity(profileDTO);
         profileEntity.setProfileId(UUID.randomUUID().toString());
         profileEntity = profileRepository.save(profileEntity);
-        log.info("Print the profile entity details: {}", profileEntity);
+        log.debug("Print the profile entity details: {}", profileEntity);
         return mapToProfileDTO(profileEntity);
     }
 
+    /**
+     * This method is used to create many profiles at once, for onboarding whole organisations.
+     * Emails repeated within the request and emails already taken are found with one query and
+     * skipped before any password is hashed. The remaining passwords are hashed in parallel and
+     * the profiles are inserted in JDBC batches in one transaction. A profile created meanwhile
+     * by another request is left alone by the email unique key and reported as existing.
+     * Unless profile.import.enabled is set the import does not exist and a 404 is returned.
+     * @param profileDTOs the profile dtos
+     * @return the outcome of each profile, in the same order
+     */
+    @Override
+    public List<ProfileImportResultDTO> createProfiles(List<ProfileDTO> profileDTOs) {
+        if (!importEnabled) {
+            throw new ResourceNotFoundException("Profile import is not enabled");
+        }
+        if (profileDTOs.size() > maxImportSize) {
+            throw new InvalidRequestException("Import should contain at most " + maxImportSize + " profiles");
+        }
+        List<ProfileImportResultDTO> results = new ArrayList<>(profileDTOs.size());
+        Map<String, Integer> firstRows = new HashMap<>();
+        for (int i = 0; i < profileDTOs.size(); i++) {
+            String email = profileDTOs.get(i).getEmail();
+            ProfileImportResultDTO result = ProfileImportResultDTO.builder().index(i).email(email).build();
+            Integer firstRow = firstRows.putIfAbsent(emailKey(email), i);
+            if (firstRow != null) {
+                result.setStatus(ProfileImportStatus.DUPLICATE);
+                result.setMessage("Email already used by row " + firstRow);
+            }
+            results.add(result);
+        }
+        Set<String> taken = profileRepository.findExistingEmails(results.stream()
+                        .filter(result -> result.getStatus() == null)
+                        .map(ProfileImportResultDTO::getEmail)
+                        .collect(Collectors.toList()))
+                .stream().map(ProfileServiceImpl::emailKey).collect(Collectors.toSet());
+
+        List<ProfileEntity> profiles = new ArrayList<>();
+        List<ProfileImportResultDTO> pending = new ArrayList<>();
+        for (ProfileImportResultDTO result : results) {
+            if (result.getStatus() != null) {
+                continue;
+            }
+            if (taken.contains(emailKey(result.getEmail()))) {
+                result.setStatus(ProfileImportStatus.EXISTS);
+                result.setMessage("Profile already exists with the email: " + result.getEmail());
+                continue;
+            }
+            profiles.add(mapToProfileEntity(profileDTOs.get(result.getIndex())));
+            pending.add(result);
+        }
+        if (profiles.isEmpty()) {
+            return results;
+        }
+
+        List<String> hashes = parallelEncoder.encodeAll(profiles.stream().map(ProfileEntity::getPassword).collect(Collectors.toList()));
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < profiles.size(); i++) {
+            ProfileEntity profileEntity = profiles.get(i);
+            profileEntity.setProfileId(UUID.randomUUID().toString());
+            profileEntity.setPassword(hashes.get(i));
+            profileEntity.setCreatedAt(now);
+            profileEntity.setUpdatedAt(now);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_PROFILE, profiles, insertBatchSize, (statement, profileEntity) -> {
+                statement.setString(1, profileEntity.getProfileId());
+                statement.setString(2, profileEntity.getEmail());
+                statement.setString(3, profileEntity.getName());
+                statement.setString(4, profileEntity.getPassword());
+                statement.setTimestamp(5, profileEntity.getCreatedAt());
+                statement.setTimestamp(6, profileEntity.getUpdatedAt());
+            });
+            // batched update counts are not reliable per row, the stored profileId tells who won the email
+            Map<String, ProfileEntity> stored = profileRepository.findByEmailIn(profiles.stream().map(ProfileEntity::getEmail).collect(Collectors.toList()))
+                    .stream().collect(Collectors.toMap(profileEntity -> emailKey(profileEntity.getEmail()), Function.identity(), (first, second) -> first));
+            for (int i = 0; i < profiles.size(); i++) {
+                ProfileImportResultDTO result = pending.get(i);
+                ProfileEntity profileEntity = stored.get(emailKey(profiles.get(i).getEmail()));
+                if (profileEntity != null && profileEntity.getProfileId().equals(profiles.get(i).getProfileId())) {
+                    result.setStatus(ProfileImportStatus.CREATED);
+                    result.setProfile(mapToProfileDTO(profileEntity));
+                } else {
+                    result.setStatus(ProfileImportStatus.EXISTS);
+                    result.setMessage("Profile already exists with the email: " + result.getEmail());
+                }
+            }
+        });
+        log.info("Imported {} of {} profiles", results.stream().filter(result -> result.getStatus() == ProfileImportStatus.CREATED).count(), results.size());
+        return results;
+    }
+
+    /**
+     * This method is used to compare emails the way the case-insensitive unique key does.
+     * @param email the email
+     * @return the comparison key
+     */
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * This method is used to map ProfileEntity to ProfileDTO.
      * @param profileEntity the profile entity
      * @return the profile dto
      */
     private ProfileDTO mapToProfileDTO(ProfileEntity profileEntity) {
-        return modelMapper.map(profileEntity, ProfileDTO.class);
+        return profileMapper.toProfileDTO(profileEntity);
     }
 
     /**
@@ -55,6 +192,6 @@ public class ProfileServiceImpl implements ProfileService {
      * @return the profile entity
      */
     private ProfileEntity mapToProfileEntity(ProfileDTO profileDTO) {
-        return modelMapper.map(profileDTO, ProfileEntity.class);
+        return profileMapper.toProfileEntity(profileDTO);
     }
 }
@@ -0,0 +1,46 @@
+package in.ling.restapi.util;
+
+import in.ling.restapi.exceptions.InvalidRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Keyset position in the (date desc, id desc) ordering of an owner's expenses.
+ * The encoded form is opaque to clients; they only hand it back to fetch the next page.
+ * @author Ling
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final Date date;
+
+    private final Long id;
+
+    public String encode() {
+        String raw = date.toLocalDate().toEpochDay() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ExpenseCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length != 2) {
+                throw new InvalidRequestException("Invalid cursor: " + cursor);
+            }
+            Date date = Date.valueOf(LocalDate.ofEpochDay(Long.parseLong(parts[0])));
+            return new ExpenseCursor(date, Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeException ex) {
+            throw new InvalidRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
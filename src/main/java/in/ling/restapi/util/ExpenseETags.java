@@ -0,0 +1,43 @@
+package in.ling.restapi.util;
+
+import in.ling.restapi.exceptions.PreconditionFailedException;
+
+/**
+ * Strong entity tags for expense resources. A single expense is tagged with its optimistic lock
+ * version; collections are tagged with the owner and the owner's expense collection version, since
+ * two profiles can be at the same collection version.
+ * @author Ling
+ */
+public final class ExpenseETags {
+
+    private ExpenseETags() {
+    }
+
+    public static String forExpense(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Reads the expense version named by an If-Match header.
+     * @param ifMatch the header value, or null
+     * @return the expected version, or null when any version is acceptable
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ex) {
+                // fall through, a tag we never issued cannot match
+            }
+        }
+        throw new PreconditionFailedException("If-Match does not match the current version of the expense");
+    }
+
+    public static String forCollection(long profileId, long version) {
+        return "\"p" + profileId + "v" + version + "\"";
+    }
+}
@@ -0,0 +1,30 @@
+package in.ling.restapi.util;
+
+import in.ling.restapi.exceptions.InvalidRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Formats supported by the expense export endpoint.
+ * @author Ling
+ */
+@Getter
+@AllArgsConstructor
+public enum ExpenseExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+
+    private final String fileExtension;
+
+    public static ExpenseExportFormat fromParameter(String format) {
+        for (ExpenseExportFormat value : values()) {
+            if (value.fileExtension.equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new InvalidRequestException("Unsupported export format: " + format);
+    }
+}
@@ -0,0 +1,93 @@
+package in.ling.restapi.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import in.ling.restapi.io.ExpenseResponse;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes expenses one row at a time to an output stream, so an export never holds
+ * more than the current row in memory.
+ * @author Ling
+ */
+public class ExpenseExportWriter implements Closeable {
+
+    private static final String CSV_HEADER = "expenseId,name,note,category,date,amount,createdAt,updatedAt";
+
+    private final ExpenseExportFormat format;
+
+    private final Writer writer;
+
+    private final SequenceWriter sequenceWriter;
+
+    private long rowCount;
+
+    public ExpenseExportWriter(ExpenseExportFormat format, ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == ExpenseExportFormat.NDJSON) {
+            this.sequenceWriter = objectMapper.writerFor(ExpenseResponse.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(writer);
+        } else {
+            this.sequenceWriter = null;
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    public void write(ExpenseResponse expense) throws IOException {
+        rowCount++;
+        if (sequenceWriter != null) {
+            sequenceWriter.write(expense);
+            return;
+        }
+        writer.write(csvField(expense.getExpenseId()));
+        writer.write(',');
+        writer.write(csvField(expense.getName()));
+        writer.write(',');
+        writer.write(csvField(expense.getNote()));
+        writer.write(',');
+        writer.write(csvField(expense.getCategory()));
+        writer.write(',');
+        writer.write(csvField(expense.getDate()));
+        writer.write(',');
+        writer.write(csvField(expense.getAmount() == null ? null : expense.getAmount().toPlainString()));
+        writer.write(',');
+        writer.write(csvField(expense.getCreatedAt()));
+        writer.write(',');
+        writer.write(csvField(expense.getUpdatedAt()));
+        writer.write('\n');
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sequenceWriter != null && rowCount > 0) {
+            sequenceWriter.flush();
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,80 @@
+package in.ling.restapi.util;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Counts the SQL statements executed on the current thread while a count is open. The counts come
+ * from QueryCountingDataSource, which wraps the application's DataSource in the diagnostics
+ * profile only, so statements sent through Hibernate and through JdbcTemplate are counted alike.
+ * Work handed to another thread is counted with the request that submitted it when the task is
+ * wrapped with propagate.
+ * @author Ling
+ */
+public final class QueryCounter {
+
+    private QueryCounter() {
+    }
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    /**
+     * Starts counting on the current thread.
+     */
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * @return the statements executed since start, or 0 when nothing is being counted
+     */
+    public static int current() {
+        int[] count = COUNT.get();
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * Stops counting on the current thread.
+     * @return the statements executed since start
+     */
+    public static int stop() {
+        int count = current();
+        COUNT.remove();
+        return count;
+    }
+
+    /**
+     * Wraps a task so that the statements it runs on another thread count towards the count open on
+     * the current thread. The submitter has to wait for the task before it stops counting.
+     * @param task the task to run on another thread
+     * @return the wrapped task, or the task itself when nothing is being counted
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        int[] count = COUNT.get();
+        if (count == null) {
+            return task;
+        }
+        return () -> {
+            int[] previous = COUNT.get();
+            COUNT.set(count);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    COUNT.remove();
+                } else {
+                    COUNT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Counts one statement sent to the database, if a count is open on the current thread.
+     */
+    public static void increment() {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package in.ling.restapi.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Counts every statement executed through the connections of the wrapped DataSource with
+ * QueryCounter. A call to execute, executeQuery, executeUpdate or executeBatch counts once, so a
+ * JDBC batch is one statement however many rows it carries. Connections and statements are
+ * wrapped in JDK proxies that delegate everything else unchanged.
+ * @author Ling
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public QueryCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingProxy(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingProxy(Connection.class, super.getConnection(username, password));
+    }
+
+    private static <T> T countingProxy(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                new CountingHandler(target)));
+    }
+
+    private record CountingHandler(Object target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            // counted before the call, a statement the database rejects has still been sent
+            if (target instanceof Statement && EXECUTE_METHODS.contains(method.getName())) {
+                QueryCounter.increment();
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+            // statements are proxied with the interface the connection method declares, e.g. PreparedStatement
+            if (target instanceof Connection && result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return countingProxy(statementType(method), result);
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<Object> statementType(Method method) {
+            return (Class<Object>) method.getReturnType();
+        }
+    }
+}
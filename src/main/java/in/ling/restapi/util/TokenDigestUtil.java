@@ -0,0 +1,29 @@
+package in.ling.restapi.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Compact, fixed-size keys for tokens, so caches and blacklists never hold the raw token.
+ * @author Ling
+ */
+public final class TokenDigestUtil {
+
+    private TokenDigestUtil() {
+    }
+
+    /**
+     * @param token the raw token
+     * @return the unpadded base64url SHA-256 digest of the token
+     */
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
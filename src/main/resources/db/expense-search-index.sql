@@ -0,0 +1,8 @@
+-- FULLTEXT index behind GET /expenses/search (ExpenseRepository.searchFullText).
+-- The application never creates it: run this once per database, e.g. with
+--   mysql expensetransactions < expense-search-index.sql
+-- in a low-traffic window. The first FULLTEXT index of a table rebuilds it to add the hidden
+-- FTS_DOC_ID column; reads go on, but inserts, updates and deletes of expenses wait until it is
+-- done. The algorithm and lock clauses make MySQL refuse the statement rather than silently take a
+-- stronger lock. Running nodes find the index within expense.search.index-check-interval.
+alter table tbl_expenses add fulltext index ftx_expenses_name_note (name, note), algorithm = inplace, lock = shared;
@@ -0,0 +1,69 @@
+package in.ling.restapi.config;
+
+import in.ling.restapi.security.ProfilePrincipal;
+import in.ling.restapi.service.ExpenseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Points the only replica at a port nothing listens on and checks that the application still
+ * starts and that read-only transactions are answered by the primary.
+ * @author Ling
+ */
+@SpringBootTest(properties = {
+        "datasource.replicas.enabled=true",
+        "datasource.replicas.urls=jdbc:h2:tcp://localhost:1/mem:unreachable",
+        "datasource.replicas.username=sa",
+        "datasource.replicas.password=",
+        "datasource.replicas.connection-timeout=250ms"
+})
+@ActiveProfiles("test")
+class ReplicaFallbackTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenTheReplicaIsDown() {
+        String email = UUID.randomUUID() + "@example.com";
+        jdbcTemplate.update("insert into tbl_profile (profile_id, email, name, password, created_at, updated_at, expenses_version) "
+                + "values (?, ?, 'Fallback', 'unused', current_timestamp, current_timestamp, 0)", UUID.randomUUID().toString(), email);
+        Long profileId = jdbcTemplate.queryForObject("select id from tbl_profile where email = ?", Long.class, email);
+        jdbcTemplate.update("insert into tbl_expenses (id, expense_id, name, category, date, amount, created_at, updated_at, version, owner_id) "
+                + "values (next value for tbl_expenses_seq, 'fallback-expense', 'On the primary', 'Food', current_date, 1, "
+                + "current_timestamp, current_timestamp, 0, ?)", profileId);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new ProfilePrincipal(profileId, null, email, null), null, List.of()));
+        double primaryRoutes = meterRegistry.counter("datasource.routing", "target", "primary").count();
+
+        assertThat(expenseService.getExpenseByExpenseId("fallback-expense").getName()).isEqualTo("On the primary");
+        assertThat(expenseService.getExpenseByExpenseId("fallback-expense").getName()).isEqualTo("On the primary");
+
+        assertThat(meterRegistry.counter("datasource.routing", "target", "primary").count()).isEqualTo(primaryRoutes + 2);
+        assertThat(meterRegistry.counter("datasource.routing", "target", "replica").count()).isZero();
+        assertThat(meterRegistry.get("datasource.replicas.healthy").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,122 @@
+package in.ling.restapi.config;
+
+import in.ling.restapi.dto.ExpenseDTO;
+import in.ling.restapi.security.ProfilePrincipal;
+import in.ling.restapi.service.ExpenseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the application against two separate H2 databases, a primary and a replica. The replica
+ * starts as a copy of the primary and then gets a different name for the same expense, so every
+ * read shows which database answered it.
+ * @author Ling
+ */
+@SpringBootTest(properties = {
+        "datasource.replicas.enabled=true",
+        "datasource.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "datasource.replicas.username=sa",
+        "datasource.replicas.password=",
+        "datasource.replicas.sticky-window=" + ReplicaRoutingTest.STICKY_WINDOW_MILLIS + "ms"
+})
+@ActiveProfiles("test")
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-routing;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    static final long STICKY_WINDOW_MILLIS = 1_000;
+
+    private static final String EXPENSE_ID = "routed-expense";
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ProfilePrincipal principal;
+
+    @BeforeEach
+    void seedPrimaryAndReplica() throws Exception {
+        // JdbcTemplate runs outside a read-only transaction, so this all goes to the primary
+        String email = UUID.randomUUID() + "@example.com";
+        jdbcTemplate.update("insert into tbl_profile (profile_id, email, name, password, created_at, updated_at, expenses_version) "
+                + "values (?, ?, 'Routing', 'unused', current_timestamp, current_timestamp, 0)", UUID.randomUUID().toString(), email);
+        Long profileId = jdbcTemplate.queryForObject("select id from tbl_profile where email = ?", Long.class, email);
+        principal = new ProfilePrincipal(profileId, null, email, null);
+        jdbcTemplate.update("delete from tbl_expenses where expense_id = ?", EXPENSE_ID);
+        jdbcTemplate.update("insert into tbl_expenses (id, expense_id, name, category, date, amount, created_at, updated_at, version, owner_id) "
+                + "values (next value for tbl_expenses_seq, ?, 'On the primary', 'Food', current_date, 1, current_timestamp, current_timestamp, 0, ?)",
+                EXPENSE_ID, profileId);
+
+        List<String> script = jdbcTemplate.queryForList("script", String.class);
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = replica.createStatement()) {
+            statement.execute("drop all objects");
+            for (String sql : script) {
+                statement.execute(sql);
+            }
+            statement.executeUpdate("update tbl_expenses set name = 'On the replica' where expense_id = '" + EXPENSE_ID + "'");
+        }
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsReadFromTheReplica() {
+        authenticate();
+        double replicaRoutes = routes("replica");
+
+        assertThat(expenseService.getExpenseByExpenseId(EXPENSE_ID).getName()).isEqualTo("On the replica");
+        assertThat(routes("replica")).isGreaterThan(replicaRoutes);
+    }
+
+    @Test
+    void profileReadsItsOwnWritesFromThePrimaryWithinTheStickyWindow() throws Exception {
+        authenticate();
+        expenseService.saveExpenseDetails(ExpenseDTO.builder()
+                .name("Written")
+                .category("Food")
+                .date(Date.valueOf(LocalDate.now()))
+                .amount(BigDecimal.TEN)
+                .build());
+
+        assertThat(expenseService.getExpenseByExpenseId(EXPENSE_ID).getName()).isEqualTo("On the primary");
+
+        Thread.sleep(STICKY_WINDOW_MILLIS + 500);
+        assertThat(expenseService.getExpenseByExpenseId(EXPENSE_ID).getName()).isEqualTo("On the replica");
+    }
+
+    private void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    private double routes(String target) {
+        return meterRegistry.counter("datasource.routing", "target", target).count();
+    }
+}
@@ -0,0 +1,190 @@
+package in.ling.restapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports a million expenses from an application JVM whose heap is far smaller than the export,
+ * so the test fails as soon as any layer between the database cursor and the socket buffers the
+ * rows. The application is forked with -Xmx96m; the rows live in an in-memory H2 database of
+ * this JVM, which the application reaches over H2's TCP server, so they are not on its heap either.
+ * @author Ling
+ */
+class ExpenseExportHeapTest {
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int SEED_CHUNK_SIZE = 100_000;
+
+    private static final String MAX_HEAP = "96m";
+
+    private static final long MAX_HEAP_BYTES = 96L * 1024 * 1024;
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+
+    private static final String DATABASE_SETTINGS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private Connection database;
+
+    private Server databaseServer;
+
+    private Process application;
+
+    private String baseUrl;
+
+    @BeforeEach
+    void startApplication() throws Exception {
+        // the open connection and DB_CLOSE_DELAY keep the in-memory database alive for the forked application
+        database = DriverManager.getConnection("jdbc:h2:mem:export-heap" + DATABASE_SETTINGS + ";DB_CLOSE_DELAY=-1", "sa", "");
+        databaseServer = Server.createTcpServer("-tcpPort", String.valueOf(freePort())).start();
+        int port = freePort();
+        baseUrl = "http://localhost:" + port + "/api/v1";
+        Path log = Files.createDirectories(Path.of("target")).resolve("export-heap-application.log");
+        application = new ProcessBuilder(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + MAX_HEAP,
+                "-XX:+ExitOnOutOfMemoryError",
+                "-cp", System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")),
+                "in.ling.restapi.RestapiApplication",
+                "--spring.profiles.active=test,diagnostics",
+                "--spring.datasource.url=jdbc:h2:tcp://localhost:" + databaseServer.getPort() + "/mem:export-heap" + DATABASE_SETTINGS,
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--server.port=" + port))
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        awaitPort(port, log.toFile());
+    }
+
+    @AfterEach
+    void stopApplication() throws Exception {
+        if (application != null) {
+            application.destroy();
+            application.waitFor();
+        }
+        if (databaseServer != null) {
+            databaseServer.stop();
+        }
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    void exportsAMillionRowsWithASmallHeap() throws Exception {
+        send("/register", "{\"name\":\"Export\",\"email\":\"export@example.com\",\"password\":\"secret1\"}");
+        String login = send("/login", "{\"email\":\"export@example.com\",\"password\":\"secret1\"}");
+        String authorization = "Bearer " + OBJECT_MAPPER.readTree(login).get("token").asText();
+        seed(profileId("export@example.com"));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/expenses/export"))
+                .header("Authorization", authorization)
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        assertThat(response.statusCode()).isEqualTo(200);
+        long lines = 0;
+        long bytes = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                bytes += line.length() + 1;
+            }
+        }
+        assertThat(lines).isEqualTo(ROWS);
+        assertThat(bytes).as("the export is larger than the application's heap").isGreaterThan(MAX_HEAP_BYTES);
+        assertThat(application.isAlive()).as("the application survived the export").isTrue();
+    }
+
+    private long profileId(String email) throws Exception {
+        try (PreparedStatement statement = database.prepareStatement("select id from tbl_profile where email = ?")) {
+            statement.setString(1, email);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertThat(resultSet.next()).isTrue();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Generates the rows inside H2, so seeding takes no JDBC round trip per row.
+     */
+    private void seed(long ownerId) throws Exception {
+        Date firstDate = Date.valueOf(LocalDate.now().minusYears(5));
+        try (PreparedStatement statement = database.prepareStatement("insert into tbl_expenses (id, expense_id, name, note, "
+                + "category, date, amount, created_at, updated_at, version, owner_id) "
+                + "select n, random_uuid(), 'Expense ' || n, 'exported under a constrained heap', 'Food', "
+                + "dateadd(day, mod(n, 1826), cast(? as date)), mod(n, 1000) + 1, current_timestamp, current_timestamp, 0, "
+                + "cast(? as bigint) from system_range(?, ?) as seed(n)")) {
+            for (int start = 1; start <= ROWS; start += SEED_CHUNK_SIZE) {
+                statement.setDate(1, firstDate);
+                statement.setLong(2, ownerId);
+                statement.setInt(3, start);
+                statement.setInt(4, Math.min(start + SEED_CHUNK_SIZE - 1, ROWS));
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private String send(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as("POST %s: %s", path, response.body()).isBetween(200, 299);
+        return response.body();
+    }
+
+    private void awaitPort(int port, File log) throws Exception {
+        Instant deadline = Instant.now().plus(STARTUP_TIMEOUT);
+        while (Instant.now().isBefore(deadline)) {
+            assertThat(application.isAlive()).as("the application exited, see %s", log).isTrue();
+            try (Socket socket = new Socket("localhost", port)) {
+                return;
+            } catch (IOException ex) {
+                Thread.sleep(500);
+            }
+        }
+        throw new AssertionError("The application did not start within " + STARTUP_TIMEOUT + ", see " + log);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
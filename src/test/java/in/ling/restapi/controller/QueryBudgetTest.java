@@ -0,0 +1,162 @@
+package in.ling.restapi.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.ling.restapi.config.QueryCountFilter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Calls every endpoint of the controllers with the diagnostics profile on and fails when one of
+ * them runs more SQL statements than its budget in application-diagnostics.properties. A new
+ * endpoint fails the test until it has a budget and is called here.
+ * @author Ling
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "diagnostics"})
+class QueryBudgetTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private final Map<String, Integer> counts = new TreeMap<>();
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${server.servlet.context-path}")
+    private String contextPath;
+
+    @Value("#{${diagnostics.query-budget.endpoints}}")
+    private Map<String, Integer> budgets;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    private String authorization;
+
+    @Test
+    void everyEndpointStaysWithinItsStatementBudget() throws Exception {
+        call("POST /register", "POST", "/register", profile("budget@example.com"));
+        JsonNode login = call("POST /login", "POST", "/login", "{\"email\":\"budget@example.com\",\"password\":\"secret1\"}");
+        authorization = "Bearer " + login.get("token").asText();
+
+        String expenseId = call("POST /expenses", "POST", "/expenses", expense("Coffee", 3)).get("expenseId").asText();
+        call("POST /expenses", "POST", "/expenses", expense("Groceries", 42));
+        call("POST /expenses", "POST", "/expenses", expense("Train", 12), "Prefer", "respond-async");
+        call("GET /expenses", "GET", "/expenses?limit=2", null);
+        call("GET /expenses", "GET", "/expenses?unpaged=true", null);
+        call("GET /expenses/search", "GET", "/expenses/search?q=coffee", null);
+        call("GET /expenses/summary", "GET", "/expenses/summary?from=2000-01-01&to=2100-12-31", null);
+        call("GET /expenses/summary/monthly", "GET", "/expenses/summary/monthly?from=2000-01&to=2100-12", null);
+        call("GET /expenses/{expenseId}", "GET", "/expenses/" + expenseId, null);
+        call("GET /expenses/ingest/{expenseId}", "GET", "/expenses/ingest/" + expenseId, null);
+        call("PUT /expenses/{expenseId}", "PUT", "/expenses/" + expenseId, expense("Espresso", 4));
+        call("PATCH /expenses/{expenseId}", "PATCH", "/expenses/" + expenseId, "{\"note\":\"patched\"}");
+        call("POST /expenses/batch", "POST", "/expenses/batch", "{\"operations\":["
+                + "{\"operation\":\"CREATE\",\"expense\":" + expense("Lunch", 9) + "},"
+                + "{\"operation\":\"UPDATE\",\"expenseId\":\"" + expenseId + "\",\"expense\":" + expense("Tea", 2) + "}]}");
+        exportExpenses();
+        call("DELETE /expenses/{expenseId}", "DELETE", "/expenses/" + expenseId, null);
+        call("POST /expenses/bulk-delete", "POST", "/expenses/bulk-delete", "{\"categories\":[\"Food\"]}");
+        call("POST /register/batch", "POST", "/register/batch", "{\"profiles\":["
+                + profile("first@example.com") + "," + profile("second@example.com") + "," + profile("budget@example.com") + "]}");
+        call("POST /signout", "POST", "/signout", null);
+
+        assertThat(counts.keySet()).as("endpoints called by this test").containsAll(controllerEndpoints());
+        assertThat(budgets.keySet()).as("endpoints with a budget").containsAll(controllerEndpoints());
+        counts.forEach((endpoint, count) -> assertThat(count)
+                .as("SQL statements of %s", endpoint)
+                .isLessThanOrEqualTo(budgets.get(endpoint)));
+    }
+
+    private void exportExpenses() throws Exception {
+        DistributionSummary summary = meterRegistry.find("http.server.queries").tag("endpoint", "GET /expenses/export").summary();
+        double before = summary == null ? 0 : summary.totalAmount();
+        HttpResponse<String> response = send("GET", "/expenses/export", null);
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(QueryCountFilter.QUERY_COUNT_HEADER))
+                .as("streamed responses are not buffered for the header").isEmpty();
+        // the filter records the count after the streamed body is complete, so wait for it
+        for (int attempt = 0; attempt < 100; attempt++) {
+            summary = meterRegistry.find("http.server.queries").tag("endpoint", "GET /expenses/export").summary();
+            if (summary != null && summary.count() > 0) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertThat(summary).isNotNull();
+        record("GET /expenses/export", (int) (summary.totalAmount() - before));
+    }
+
+    private Set<String> controllerEndpoints() {
+        Set<String> endpoints = new TreeSet<>();
+        handlerMapping.getHandlerMethods().forEach((info, method) -> {
+            if (method.getBeanType().getPackageName().equals(QueryBudgetTest.class.getPackageName())) {
+                info.getMethodsCondition().getMethods().forEach(requestMethod ->
+                        info.getPatternValues().forEach(pattern -> endpoints.add(requestMethod.name() + " " + pattern)));
+            }
+        });
+        return endpoints;
+    }
+
+    private JsonNode call(String endpoint, String method, String path, String body, String... headers) throws Exception {
+        HttpResponse<String> response = send(method, path, body, headers);
+        assertThat(response.statusCode()).as("%s %s: %s", method, path, response.body()).isBetween(200, 299);
+        record(endpoint, Integer.parseInt(response.headers().firstValue(QueryCountFilter.QUERY_COUNT_HEADER).orElseThrow()));
+        return response.body().isEmpty() ? null : OBJECT_MAPPER.readTree(response.body());
+    }
+
+    private void record(String endpoint, int count) {
+        counts.merge(endpoint, count, Math::max);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body, String... headers) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + contextPath + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (body != null) {
+            builder.header("Content-Type", "application/json");
+        }
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        if (headers.length > 0) {
+            builder.headers(headers);
+        }
+        return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String profile(String email) {
+        return "{\"name\":\"Budget\",\"email\":\"" + email + "\",\"password\":\"secret1\"}";
+    }
+
+    private static String expense(String name, int amount) {
+        return "{\"name\":\"" + name + "\",\"note\":\"budget test\",\"category\":\"Food\",\"date\":\""
+                + LocalDate.now() + "\",\"amount\":" + amount + "}";
+    }
+}
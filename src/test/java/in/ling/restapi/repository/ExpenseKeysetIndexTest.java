@@ -0,0 +1,112 @@
+package in.ling.restapi.repository;
+
+import in.ling.restapi.dto.ExpenseFilterDTO;
+import in.ling.restapi.dto.ExpensePageDTO;
+import in.ling.restapi.entity.ProfileEntity;
+import in.ling.restapi.security.ProfilePrincipal;
+import in.ling.restapi.service.ExpenseService;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN on the keyset page query exactly as Hibernate sends it and checks that the
+ * database scans idx_expenses_owner_date_id from the cursor on, rather than reading all of the
+ * owner's expenses through the owner_id foreign key index. Runs on H2; on MySQL the same query
+ * shows the index as key with a range access.
+ * @author Ling
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ExpenseKeysetIndexTest {
+
+    private static final int ROWS_PER_OWNER = 5_000;
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ProfileRepository profileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class StatementRecordingConfig {
+
+        @Bean
+        public HibernatePropertiesCustomizer statementRecorder() {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                STATEMENTS.add(sql);
+                return sql;
+            });
+        }
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void keysetPageWalksTheOwnerDateIdIndex() {
+        ProfileEntity owner = seedOwner("keyset@example.com", 0);
+        seedOwner("neighbour@example.com", ROWS_PER_OWNER);
+        jdbcTemplate.execute("analyze");
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new ProfilePrincipal(owner.getId(), owner.getProfileId(), owner.getEmail(), null), null, List.of()));
+
+        ExpenseFilterDTO noFilter = ExpenseFilterDTO.builder().build();
+        ExpensePageDTO firstPage = expenseService.getExpensesPage(noFilter, null, 20);
+        assertThat(firstPage.getNextCursor()).isNotNull();
+        STATEMENTS.clear();
+        expenseService.getExpensesPage(noFilter, firstPage.getNextCursor(), 20);
+
+        List<String> pageQueries = STATEMENTS.stream().filter(sql -> sql.contains(" from tbl_expenses ")).toList();
+        assertThat(pageQueries).hasSize(1);
+        String sql = pageQueries.get(0);
+        // the plan does not depend on the values, so every parameter is bound as null
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, new Object[countParameters(sql)]);
+        assertThat(plan).as(plan).contains("/* public.idx_expenses_owner_date_id: owner_id = ?1")
+                .containsPattern("AND date <= \\?\\d");
+    }
+
+    private ProfileEntity seedOwner(String email, int firstId) {
+        ProfileEntity owner = profileRepository.save(ProfileEntity.builder()
+                .profileId(UUID.randomUUID().toString())
+                .email(email)
+                .name("Keyset")
+                .password("unused")
+                .build());
+        jdbcTemplate.update("insert into tbl_expenses (id, expense_id, name, note, category, date, amount, "
+                + "created_at, updated_at, version, owner_id) "
+                + "select n, random_uuid(), 'Expense ' || n, null, 'Food', dateadd(day, mod(n, 365), cast(? as date)), "
+                + "mod(n, 100) + 1, current_timestamp, current_timestamp, 0, cast(? as bigint) from system_range(?, ?) as seed(n)",
+                Date.valueOf(LocalDate.now().minusYears(1)), owner.getId(), firstId + 1, firstId + ROWS_PER_OWNER);
+        return owner;
+    }
+
+    private static int countParameters(String sql) {
+        return (int) sql.chars().filter(c -> c == '?').count();
+    }
+}
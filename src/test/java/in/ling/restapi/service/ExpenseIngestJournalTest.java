@@ -0,0 +1,192 @@
+package in.ling.restapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.ling.restapi.dto.ExpenseIngestRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exercises the ingest journal on a temporary directory: segment rollover and deletion, the
+ * truncation of the newest segment, recovery from a torn last record, replay of the single file
+ * journal of earlier versions and concurrent appends sharing forces.
+ * @author Ling
+ */
+class ExpenseIngestJournalTest {
+
+    // a record is about 150 bytes, so a segment holds three of them
+    private static final long SEGMENT_SIZE = 400;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void rollsOverToSegmentsNamedAfterTheirFirstSequence() throws IOException {
+        try (ExpenseIngestJournal journal = open()) {
+            appendRecords(journal, 10);
+        }
+
+        assertThat(segments()).containsExactly("expenses-1.journal", "expenses-10.journal", "expenses-4.journal", "expenses-7.journal");
+        try (ExpenseIngestJournal journal = open()) {
+            assertThat(sequences(journal.getPending())).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        }
+    }
+
+    @Test
+    void deletesTheSegmentsTheCheckpointHasPassed() throws IOException {
+        try (ExpenseIngestJournal journal = open()) {
+            appendRecords(journal, 10);
+            // expenses-4 holds 4 to 6, so it has to stay until 6 is checkpointed
+            journal.checkpoint(5);
+            assertThat(segments()).containsExactly("expenses-10.journal", "expenses-4.journal", "expenses-7.journal");
+            journal.checkpoint(6);
+            assertThat(segments()).containsExactly("expenses-10.journal", "expenses-7.journal");
+        }
+
+        try (ExpenseIngestJournal journal = open()) {
+            assertThat(sequences(journal.getPending())).containsExactly(7L, 8L, 9L, 10L);
+        }
+    }
+
+    @Test
+    void keepsAppendingToTheNewestSegmentAfterTruncatingIt() throws IOException {
+        try (ExpenseIngestJournal journal = open()) {
+            appendRecords(journal, 2);
+            journal.checkpoint(2);
+            assertThat(Files.size(directory.resolve("expenses-1.journal"))).isZero();
+            // the segment keeps its name although it now starts at 3
+            appendRecords(journal, 4);
+            assertThat(segments()).containsExactly("expenses-1.journal", "expenses-6.journal");
+        }
+
+        try (ExpenseIngestJournal journal = open()) {
+            assertThat(sequences(journal.getPending())).containsExactly(3L, 4L, 5L, 6L);
+            journal.checkpoint(5);
+            assertThat(segments()).as("expenses-1 ends at 5, before expenses-6 starts").containsExactly("expenses-6.journal");
+            ExpenseIngestRecord record = record();
+            journal.append(record);
+            assertThat(record.getSequence()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void cutsOffATornLastRecord() throws IOException {
+        try (ExpenseIngestJournal journal = open()) {
+            appendRecords(journal, 2);
+        }
+        Path segment = directory.resolve("expenses-1.journal");
+        long intact = Files.size(segment);
+        Files.writeString(segment, "{\"sequence\":3,\"ownerId\":1,\"expen", StandardOpenOption.APPEND);
+
+        try (ExpenseIngestJournal journal = open()) {
+            assertThat(sequences(journal.getPending())).containsExactly(1L, 2L);
+            assertThat(Files.size(segment)).isEqualTo(intact);
+            appendRecords(journal, 1);
+        }
+        try (ExpenseIngestJournal journal = open()) {
+            assertThat(sequences(journal.getPending())).containsExactly(1L, 2L, 3L);
+        }
+    }
+
+    @Test
+    void replaysAndThenDeletesTheSingleFileJournal() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (long sequence = 1; sequence <= 3; sequence++) {
+            ExpenseIngestRecord record = record();
+            record.setSequence(sequence);
+            lines.add(objectMapper.writeValueAsString(record));
+        }
+        Files.write(directory.resolve("expenses.journal"), lines, StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("expenses.checkpoint"), "1");
+
+        try (ExpenseIngestJournal journal = open()) {
+            assertThat(sequences(journal.getPending())).containsExactly(2L, 3L);
+            ExpenseIngestRecord record = record();
+            journal.append(record);
+            assertThat(record.getSequence()).isEqualTo(4);
+            assertThat(segments()).containsExactly("expenses-4.journal", "expenses.journal");
+            journal.checkpoint(3);
+            assertThat(segments()).containsExactly("expenses-4.journal");
+        }
+    }
+
+    @Test
+    void concurrentAppendsGetDistinctSequencesAndAllBecomeDurable() throws Exception {
+        int threads = 8;
+        int perThread = 50;
+        try (ExpenseIngestJournal journal = new ExpenseIngestJournal(directory, objectMapper, true, SEGMENT_SIZE)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> appenders = new ArrayList<>();
+                for (int thread = 0; thread < threads; thread++) {
+                    appenders.add(executor.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            ExpenseIngestRecord record = record();
+                            journal.append(record);
+                            journal.awaitDurable(record.getSequence());
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> appender : appenders) {
+                    appender.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        try (ExpenseIngestJournal journal = open()) {
+            List<Long> sequences = sequences(journal.getPending());
+            assertThat(sequences).hasSize(threads * perThread).doesNotHaveDuplicates();
+            assertThat(sequences).isSorted().startsWith(1L).endsWith((long) threads * perThread);
+        }
+    }
+
+    private ExpenseIngestJournal open() throws IOException {
+        return new ExpenseIngestJournal(directory, objectMapper, false, SEGMENT_SIZE);
+    }
+
+    private static void appendRecords(ExpenseIngestJournal journal, int count) {
+        for (int i = 0; i < count; i++) {
+            journal.append(record());
+        }
+    }
+
+    private static ExpenseIngestRecord record() {
+        return ExpenseIngestRecord.builder()
+                .ownerId(1L)
+                .expenseId("expense-" + System.nanoTime())
+                .name("Coffee")
+                .note("journal test")
+                .category("Food")
+                .amount(BigDecimal.TEN)
+                .build();
+    }
+
+    private static List<Long> sequences(List<ExpenseIngestRecord> records) {
+        return records.stream().map(ExpenseIngestRecord::getSequence).toList();
+    }
+
+    private List<String> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".journal")).sorted().toList();
+        }
+    }
+}
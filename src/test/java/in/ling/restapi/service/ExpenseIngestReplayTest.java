@@ -0,0 +1,153 @@
+package in.ling.restapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.ling.restapi.dto.ExpenseDTO;
+import in.ling.restapi.dto.ExpenseIngestRecord;
+import in.ling.restapi.dto.ExpenseIngestStatus;
+import in.ling.restapi.security.ProfilePrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays a journal whose checkpoint lags behind the database, as after a crash between the
+ * insert and the checkpoint, and checks that the expenses already written are neither inserted
+ * nor added to the rollups a second time.
+ * @author Ling
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ExpenseIngestReplayTest {
+
+    private static final Path JOURNAL_DIRECTORY = temporaryDirectory();
+
+    @Autowired
+    private ExpenseIngestService expenseIngestService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void ingestProperties(DynamicPropertyRegistry registry) {
+        registry.add("expense.ingest.enabled", () -> "true");
+        registry.add("expense.ingest.fsync", () -> "false");
+        registry.add("expense.ingest.journal-dir", JOURNAL_DIRECTORY::toString);
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void replayedExpensesThatAreAlreadyPersistedAreSkipped() throws Exception {
+        String email = UUID.randomUUID() + "@example.com";
+        jdbcTemplate.update("insert into tbl_profile (profile_id, email, name, password, created_at, updated_at, expenses_version) "
+                + "values (?, ?, 'Replay', 'unused', current_timestamp, current_timestamp, 0)", UUID.randomUUID().toString(), email);
+        Long ownerId = jdbcTemplate.queryForObject("select id from tbl_profile where email = ?", Long.class, email);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new ProfilePrincipal(ownerId, null, email, null), null, List.of()));
+
+        List<ExpenseIngestRecord> persisted = new ArrayList<>();
+        for (int amount = 1; amount <= 2; amount++) {
+            ExpenseDTO expense = expense(amount);
+            String expenseId = expenseIngestService.accept(expense).getExpenseId();
+            awaitPersisted(expenseId);
+            persisted.add(toRecord(ownerId, expenseId, expense));
+        }
+        expenseIngestService.stop();
+
+        // the crash: both expenses are in the database, the journal still holds them above its checkpoint
+        List<ExpenseIngestRecord> journal = new ArrayList<>(persisted);
+        journal.add(toRecord(ownerId, UUID.randomUUID().toString(), expense(4)));
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < journal.size(); i++) {
+            journal.get(i).setSequence(i + 1);
+            lines.add(objectMapper.writeValueAsString(journal.get(i)));
+        }
+        try (Stream<Path> files = Files.list(JOURNAL_DIRECTORY)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(".journal")).toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.write(JOURNAL_DIRECTORY.resolve("expenses-1.journal"), lines, StandardCharsets.UTF_8);
+        Files.writeString(JOURNAL_DIRECTORY.resolve("expenses.checkpoint"), "0");
+
+        expenseIngestService.start();
+        awaitPersisted(journal.get(2).getExpenseId());
+
+        for (ExpenseIngestRecord record : journal) {
+            // a duplicate insert would fail on the unique expense_id and mark the expense FAILED
+            assertThat(expenseIngestService.getStatus(record.getExpenseId()).getStatus()).isEqualTo(ExpenseIngestStatus.PERSISTED);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from tbl_expenses where expense_id = ?",
+                    Integer.class, record.getExpenseId())).as(record.getExpenseId()).isEqualTo(1);
+        }
+        assertThat(jdbcTemplate.queryForObject("select sum(expense_count) from tbl_expense_rollups where owner_id = ?",
+                Long.class, ownerId)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("select sum(total) from tbl_expense_rollups where owner_id = ?",
+                BigDecimal.class, ownerId)).isEqualByComparingTo("7");
+    }
+
+    private void awaitPersisted(String expenseId) throws InterruptedException {
+        for (int attempt = 0; attempt < 200; attempt++) {
+            if (expenseIngestService.getStatus(expenseId).getStatus() == ExpenseIngestStatus.PERSISTED) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Expense " + expenseId + " was not persisted");
+    }
+
+    private static ExpenseDTO expense(int amount) {
+        return ExpenseDTO.builder()
+                .name("Replayed")
+                .category("Food")
+                .date(Date.valueOf(LocalDate.now()))
+                .amount(BigDecimal.valueOf(amount))
+                .build();
+    }
+
+    private static ExpenseIngestRecord toRecord(Long ownerId, String expenseId, ExpenseDTO expense) {
+        return ExpenseIngestRecord.builder()
+                .ownerId(ownerId)
+                .expenseId(expenseId)
+                .name(expense.getName())
+                .category(expense.getCategory())
+                .date(expense.getDate())
+                .amount(expense.getAmount())
+                .build();
+    }
+
+    private static Path temporaryDirectory() {
+        try {
+            return Files.createTempDirectory("expense-ingest-replay");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}